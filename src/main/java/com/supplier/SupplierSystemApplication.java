@@ -2,8 +2,10 @@ package com.supplier;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SupplierSystemApplication {
     public static void main(String[] args) {
         SpringApplication.run(SupplierSystemApplication.class, args);
@@ -0,0 +1,43 @@
+package com.supplier.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.oxm.Marshaller;
+import org.springframework.oxm.Unmarshaller;
+import org.springframework.ws.WebServiceMessage;
+import org.springframework.ws.context.MessageContext;
+import org.springframework.ws.mime.MimeMessage;
+import org.springframework.ws.server.endpoint.adapter.method.MarshallingPayloadMethodProcessor;
+import org.springframework.ws.support.MarshallingUtils;
+
+/**
+ * Marshalling processor that only sends binary content as MTOM/XOP attachments
+ * when the client negotiated MTOM by sending an XOP request. Other clients keep
+ * getting inline base64, exactly as before MTOM was enabled.
+ */
+public class MtomAwarePayloadMethodProcessor extends MarshallingPayloadMethodProcessor {
+
+    private final boolean mtomEnabled;
+
+    public MtomAwarePayloadMethodProcessor(Marshaller marshaller, Unmarshaller unmarshaller, boolean mtomEnabled) {
+        super(marshaller, unmarshaller);
+        this.mtomEnabled = mtomEnabled;
+    }
+
+    @Override
+    public void handleReturnValue(MessageContext messageContext, MethodParameter returnType, Object returnValue) throws Exception {
+        if (returnValue == null) {
+            return;
+        }
+        WebServiceMessage response = messageContext.getResponse();
+        if (mtomEnabled && isXopRequest(messageContext)) {
+            // Passes the response as MimeContainer so DataHandlers become attachments
+            MarshallingUtils.marshal(getMarshaller(), returnValue, response);
+        } else {
+            getMarshaller().marshal(returnValue, response.getPayloadResult());
+        }
+    }
+
+    private boolean isXopRequest(MessageContext messageContext) {
+        return messageContext.getRequest() instanceof MimeMessage request && request.isXopPackage();
+    }
+}
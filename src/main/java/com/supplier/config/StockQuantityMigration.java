@@ -0,0 +1,71 @@
+package com.supplier.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Flyway migration V2 for databases created before Stock.quantity became the only stored
+ * quantity: creates the missing stock rows from products.available_quantity, then drops
+ * that column. Does nothing on databases that never had the column (everything created
+ * from V1). Registered with Flyway as a bean.
+ */
+@Component
+@Slf4j
+public class StockQuantityMigration implements JavaMigration {
+
+    private static final String BACKFILL_STOCK_SQL =
+            "INSERT INTO stock (product_id, quantity, last_updated) " +
+            "SELECT p.id, p.available_quantity, CURRENT_TIMESTAMP FROM products p " +
+            "WHERE NOT EXISTS (SELECT 1 FROM stock s WHERE s.product_id = p.id)";
+    private static final String DROP_COLUMN_SQL =
+            "ALTER TABLE products DROP COLUMN available_quantity";
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("2");
+    }
+
+    @Override
+    public String getDescription() {
+        return "move product quantity to stock";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        if (!hasColumn(connection, "products", "available_quantity") || !hasColumn(connection, "stock", "quantity")) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        int created = jdbcTemplate.update(BACKFILL_STOCK_SQL);
+        jdbcTemplate.execute(DROP_COLUMN_SQL);
+        log.info("Migrated product quantities to the stock table ({} stock rows created)", created);
+    }
+
+    private boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+            return columns.next();
+        }
+    }
+}
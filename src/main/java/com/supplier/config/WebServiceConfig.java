@@ -1,19 +1,37 @@
 package com.supplier.config;
 
+import com.supplier.ws.GetAllProductsResponse;
+import com.supplier.ws.GetProductByIdRequest;
+import com.supplier.ws.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.ws.config.annotation.EnableWs;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.ws.config.annotation.WsConfigurationSupport;
+import org.springframework.ws.server.endpoint.adapter.DefaultMethodEndpointAdapter;
 import org.springframework.ws.transport.http.MessageDispatcherServlet;
 import org.springframework.ws.wsdl.wsdl11.DefaultWsdl11Definition;
 import org.springframework.xml.xsd.SimpleXsdSchema;
 import org.springframework.xml.xsd.XsdSchema;
 
-@EnableWs
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import java.util.List;
+
+// Extends WsConfigurationSupport instead of @EnableWs so the marshalling processor below
+// replaces the default JAXB processors, which never write MTOM attachments
 @Configuration
-public class WebServiceConfig {
+@Slf4j
+public class WebServiceConfig extends WsConfigurationSupport {
+
+    @Value("${supplier.ws.mtom.enabled:true}")
+    private boolean mtomEnabled;
 
     @Bean
     public ServletRegistrationBean<MessageDispatcherServlet> messageDispatcherServlet(ApplicationContext context) {
@@ -37,4 +55,53 @@ public class WebServiceConfig {
     public XsdSchema supplierSchema() {
         return new SimpleXsdSchema(new ClassPathResource("ws/supplier.xsd"));
     }
-}
\ No newline at end of file
+
+    /**
+     * One marshaller (and so one JAXBContext) shared by every request. The context is built
+     * eagerly from the generated ObjectFactory rather than by scanning the classpath, and
+     * warmUpMarshaller() runs one round trip at startup so the first SOAP client does not
+     * pay for JAXB's lazy initialisation. SAAJ still builds a DOM per message (Spring WS 4
+     * has no Axiom support); large responses are kept small with paging, field projections,
+     * includePictureData=false and MTOM attachments, which stream images from disk.
+     */
+    @Bean
+    public Jaxb2Marshaller supplierMarshaller() {
+        Jaxb2Marshaller marshaller = new Jaxb2Marshaller();
+        marshaller.setContextPath("com.supplier.ws");
+        marshaller.setLazyInit(false);
+        marshaller.setMtomEnabled(mtomEnabled);
+        return marshaller;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpMarshaller() {
+        long start = System.nanoTime();
+        Jaxb2Marshaller marshaller = supplierMarshaller();
+        GetProductByIdRequest request = new GetProductByIdRequest();
+        request.setId(1L);
+        DOMResult requestXml = new DOMResult();
+        marshaller.marshal(request, requestXml);
+        marshaller.unmarshal(new DOMSource(requestXml.getNode()));
+
+        GetAllProductsResponse response = new GetAllProductsResponse();
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("warm-up");
+        product.setSupplierPrice(1.0);
+        product.setRealTimeStock(1);
+        response.getProducts().add(product);
+        marshaller.marshal(response, new DOMResult());
+        log.info("SOAP marshaller warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Bean
+    @Override
+    public DefaultMethodEndpointAdapter defaultMethodEndpointAdapter() {
+        DefaultMethodEndpointAdapter adapter = super.defaultMethodEndpointAdapter();
+        Jaxb2Marshaller marshaller = supplierMarshaller();
+        MtomAwarePayloadMethodProcessor processor = new MtomAwarePayloadMethodProcessor(marshaller, marshaller, mtomEnabled);
+        adapter.setMethodArgumentResolvers(List.of(processor));
+        adapter.setMethodReturnValueHandlers(List.of(processor));
+        return adapter;
+    }
+}
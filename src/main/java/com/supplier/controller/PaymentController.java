@@ -1,20 +1,29 @@
 package com.supplier.controller;
 
-import com.stripe.exception.SignatureVerificationException;
-import com.stripe.exception.StripeException;
-import com.stripe.model.Event;
-import com.stripe.model.checkout.Session;
-import com.stripe.net.Webhook;
 import com.supplier.entity.Payment;
+import com.supplier.service.CheckoutExecutor;
+import com.supplier.service.CheckoutRejectedException;
+import com.supplier.service.GatewayEvent;
+import com.supplier.service.PaymentGateway;
+import com.supplier.service.PaymentGatewayException;
 import com.supplier.service.PaymentService;
+import com.supplier.service.WebhookInbox;
+import com.supplier.service.WebhookSignatureException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -24,30 +33,30 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
-
-    // Inject from application.properties
-    @Value("${stripe.webhook.secret}")
-    private String endpointSecret;
+    private final CheckoutExecutor checkoutExecutor;
+    private final PaymentGateway paymentGateway;
+    private final WebhookInbox webhookInbox;
+    private final HealthEndpoint healthEndpoint;
 
     @PostMapping("/create-checkout-session")
-    public ResponseEntity<Map<String, String>> createCheckoutSession(@RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> createCheckoutSession(@RequestBody Map<String, Object> request) {
         try {
             log.info("Received checkout session request: {}", request);
             
             // Validate required parameters
             if (request == null) {
                 log.error("Request body is null");
-                return ResponseEntity.badRequest().body(Map.of("error", "Request body cannot be null"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Request body cannot be null")));
             }
             
             if (!request.containsKey("productId")) {
                 log.error("Missing productId in request: {}", request);
-                return ResponseEntity.badRequest().body(Map.of("error", "productId is required"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "productId is required")));
             }
             
             if (!request.containsKey("quantity")) {
                 log.error("Missing quantity in request: {}", request);
-                return ResponseEntity.badRequest().body(Map.of("error", "quantity is required"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "quantity is required")));
             }
             
             // Extract required parameters
@@ -59,7 +68,7 @@ public class PaymentController {
                 log.info("Extracted productId: {}", productId);
             } catch (NumberFormatException e) {
                 log.error("Invalid productId format: {}", request.get("productId"));
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid productId format"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Invalid productId format")));
             }
             
             try {
@@ -67,13 +76,13 @@ public class PaymentController {
                 log.info("Extracted quantity: {}", quantity);
             } catch (NumberFormatException e) {
                 log.error("Invalid quantity format: {}", request.get("quantity"));
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid quantity format"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Invalid quantity format")));
             }
             
             // Validate quantity
             if (quantity <= 0) {
                 log.error("Invalid quantity: {}", quantity);
-                return ResponseEntity.badRequest().body(Map.of("error", "Quantity must be greater than 0"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Quantity must be greater than 0")));
             }
             
             // Generate order ID if not provided
@@ -92,29 +101,51 @@ public class PaymentController {
             log.info("Creating checkout session for product {} with quantity {} and orderId {}", 
                     productId, quantity, orderId);
 
-            String sessionUrl = paymentService.createCheckoutSession(productId, quantity, amount, currency, orderId);
-            log.info("Checkout session created successfully: {}", sessionUrl);
-            return ResponseEntity.ok(Map.of("url", sessionUrl));
-        } catch (StripeException e) {
-            log.error("Stripe error: {}", e.getMessage());
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            // Runs on the checkout executor so the servlet thread is released while Stripe is called
+            return checkoutExecutor.submit(productId, quantity, amount, currency, orderId)
+                    .thenApply(result -> {
+                        log.info("Checkout session created successfully: {}", result.getUrl());
+                        return ResponseEntity.ok(Map.of("url", result.getUrl()));
+                    })
+                    .exceptionally(this::checkoutError);
+        } catch (CheckoutRejectedException e) {
+            return CompletableFuture.completedFuture(checkoutError(e));
         } catch (Exception e) {
             log.error("Error creating checkout session: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
         }
     }
 
+    private ResponseEntity<Map<String, String>> checkoutError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CheckoutRejectedException) {
+            log.warn("Checkout rejected: {}", cause.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", cause.getMessage()));
+        }
+        if (cause instanceof TimeoutException) {
+            log.error("Checkout timed out");
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(Map.of("error", "Checkout timed out"));
+        }
+        if (cause instanceof PaymentGatewayException) {
+            log.error("Payment gateway error: {}", cause.getMessage());
+        } else {
+            log.error("Error creating checkout session: {}", cause.getMessage(), cause);
+        }
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(cause.getMessage())));
+    }
+
     // SECURE Stripe webhook endpoint
     @PostMapping("/webhook")
     public ResponseEntity<String> handleStripeWebhook(
             @RequestBody String payload,
             @RequestHeader("Stripe-Signature") String sigHeader) {
         log.info("Received Stripe webhook event");
-        Event event;
+        GatewayEvent event;
         try {
-            // Directly use Webhook.constructEvent (not Event.constructFrom!)
-            event = Webhook.constructEvent(payload, sigHeader, endpointSecret);
-        } catch (SignatureVerificationException e) {
+            event = paymentGateway.verifyWebhook(payload, sigHeader);
+        } catch (WebhookSignatureException e) {
             log.error("⚠️  Webhook signature verification failed.", e);
             return ResponseEntity.status(400).body("Invalid signature");
         } catch (Exception e) {
@@ -122,14 +153,9 @@ public class PaymentController {
             return ResponseEntity.status(400).body("Invalid payload");
         }
 
-        // Handle event types you care about
-        if ("checkout.session.completed".equals(event.getType())) {
-            // Deserialize object to Session
-            Session session = (Session) event.getDataObjectDeserializer().getObject().orElse(null);
-            if (session != null) {
-                log.info("Payment Success! Session ID: {}", session.getId());
-                paymentService.handleSuccessfulPayment(session.getId());
-            }
+        // Acknowledge at once; WebhookInboxWorker applies the payment and stock changes
+        if (!webhookInbox.enqueue(event)) {
+            log.info("Webhook event {} already received", event.getId());
         }
 
         return ResponseEntity.ok("Received");
@@ -150,13 +176,14 @@ public class PaymentController {
     
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
-        try {
-            // Try to fetch a simple count to verify database connection
-            List<Payment> payments = paymentService.getAllPayments();
-            return ResponseEntity.ok(Map.of("status", "healthy", "database", "connected", "payments_count", String.valueOf(payments.size())));
-        } catch (Exception e) {
-            log.error("Health check failed: {}", e.getMessage());
-            return ResponseEntity.status(503).body(Map.of("status", "unhealthy", "error", e.getMessage()));
+        // Delegates to the actuator database health indicator (a pooled connection validity
+        // check) instead of querying the payments table
+        HealthComponent database = healthEndpoint.healthForPath("db");
+        if (database != null && Status.UP.equals(database.getStatus())) {
+            return ResponseEntity.ok(Map.of("status", "healthy", "database", "connected"));
         }
+        String databaseStatus = database != null ? database.getStatus().getCode() : Status.UNKNOWN.getCode();
+        log.error("Health check failed: database status {}", databaseStatus);
+        return ResponseEntity.status(503).body(Map.of("status", "unhealthy", "database", databaseStatus));
     }
 }
@@ -1,17 +1,32 @@
 package com.supplier.controller;
 
 import com.supplier.entity.Product;
+import com.supplier.service.ChangeSet;
+import com.supplier.service.ImportReport;
+import com.supplier.service.ProductImporter;
+import com.supplier.service.ProductPage;
 import com.supplier.service.ProductService;
+import com.supplier.service.StockChanges;
+import com.supplier.service.StockLevel;
+import com.supplier.service.StockStreamService;
+import com.supplier.service.StockUpdateResult;
+import com.supplier.service.SubscriptionRejectedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -20,29 +35,100 @@ import java.util.*;
 @RestController
 @RequestMapping("/api/products")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {ProductController.NEXT_PAGE_TOKEN_HEADER, HttpHeaders.ETAG})
 @Slf4j
 public class ProductController {
 
+    public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
     private final ProductService productService;
+    private final ProductImporter productImporter;
+    private final StockStreamService stockStreamService;
 
     @Value("${upload.dir}")
     private String uploadDir;
 
+    /**
+     * Conditional on If-None-Match: the ETag comes from the change version clock and is
+     * checked before the catalog is read, so polling an unchanged catalog is a 304 with no query.
+     */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<Product>> getAllProducts(
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize,
+            WebRequest webRequest) {
+        // Read before the catalog, so the tag is never newer than the body it labels
+        String catalogTag = productService.getCatalogTag();
+        if (catalogTag != null && webRequest.checkNotModified(catalogTag)) {
+            return null;
+        }
+        if (isPaged(pageToken, pageSize)) {
+            log.info("Fetching products page (pageSize {})", pageSize);
+            return productPage(pageToken, pageSize);
+        }
         log.info("Fetching all products");
         List<Product> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/admin/all")
-    public ResponseEntity<List<Product>> getAllProductsForAdmin() {
+    public ResponseEntity<List<Product>> getAllProductsForAdmin(
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        if (isPaged(pageToken, pageSize)) {
+            log.info("Admin fetching products page (pageSize {})", pageSize);
+            return productPage(pageToken, pageSize);
+        }
         log.info("Admin fetching all products (including pending approval)");
         List<Product> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        log.info("Streaming product catalog export");
+        StreamingResponseBody body = productService::exportProducts;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Bulk import from a CSV (text/csv) or NDJSON (application/x-ndjson) body, read as it
+     * arrives. Responds with the per-row report; 400 if the CSV header is unusable.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                            InputStream body) throws IOException {
+        ProductImporter.Format format = "csv".equalsIgnoreCase(contentType.getSubtype())
+                ? ProductImporter.Format.CSV : ProductImporter.Format.NDJSON;
+        log.info("Importing products ({})", format);
+        try {
+            ImportReport report = productImporter.importProducts(body, format);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            log.warn("Product import rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Delta sync: products changed and ids deleted after the caller's watermark. Call again
+     * with the returned version (immediately while hasMore is true).
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeSet> getChangesSince(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Integer limit) {
+        log.info("Fetching product changes since version {}", since);
+        return ResponseEntity.ok(productService.getChangesSince(since, limit));
+    }
+
+    @GetMapping("/admin/cache-stats")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productService.getProductCacheStats());
+    }
+
     @GetMapping("/admin/pending")
     public ResponseEntity<List<Product>> getPendingApprovalProducts() {
         log.info("Admin fetching pending approval products");
@@ -90,12 +176,29 @@ public class ProductController {
         }
     }
 
+    /**
+     * Conditional on If-None-Match (ETag from the product and stock change versions). No
+     * Last-Modified is sent: products have no modification time, and the stock's would miss
+     * product-only changes. Answered from the product cache when possible, and a 304 skips
+     * serialization.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest webRequest) {
         log.info("Fetching product with id: {}", id);
         Optional<Product> product = productService.getProductById(id);
-        return product.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(productTag(product.get()))) {
+            return null;
+        }
+        return ResponseEntity.ok(product.get());
+    }
+
+    // Each write to a product or its stock row stamps a new change version on that row
+    private static String productTag(Product product) {
+        Long stockVersion = product.getStock() == null ? null : product.getStock().getChangeVersion();
+        return product.getChangeVersion() + "." + (stockVersion == null ? 0 : stockVersion);
     }
 
     @PostMapping
@@ -108,6 +211,16 @@ public class ProductController {
         return ResponseEntity.ok(createdProduct);
     }
 
+    /**
+     * Bulk stock sync: sets many absolute levels in chunked batches; the response has one
+     * outcome per item, in request order.
+     */
+    @PutMapping("/stock")
+    public ResponseEntity<List<StockUpdateResult>> updateStockLevels(@RequestBody List<StockLevel> levels) {
+        log.info("Bulk updating stock for {} items", levels.size());
+        return ResponseEntity.ok(productService.updateStockLevels(levels));
+    }
+
     @PutMapping("/stock/{productId}")
     public ResponseEntity<Product> updateStock(
             @PathVariable Long productId,
@@ -119,20 +232,100 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * SSE stream of stock levels ("stock" events carrying a list of productId/quantity),
+     * for the given products or every product. Reconnect and resync via /changes or
+     * /stock/poll when the stream ends.
+     */
+    @GetMapping(value = "/stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStock(@RequestParam(required = false) Set<Long> productIds) {
+        log.info("Opening stock stream for {} products", productIds == null ? "all" : productIds.size());
+        try {
+            return ResponseEntity.ok(stockStreamService.openStream(productIds == null ? Set.of() : productIds));
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (SubscriptionRejectedException e) {
+            log.warn("Stock stream rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+    }
+
+    /**
+     * Long-poll fallback for the stock stream: returns the stock changes after since, waiting
+     * up to timeoutMs for one. Poll again with the returned version.
+     */
+    @GetMapping("/stock/poll")
+    public DeferredResult<StockChanges> pollStock(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Set<Long> productIds,
+            @RequestParam(required = false) Long timeoutMs) {
+        try {
+            return stockStreamService.pollChanges(since, productIds == null ? Set.of() : productIds, timeoutMs);
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return pollError(ResponseEntity.badRequest().build());
+        } catch (SubscriptionRejectedException e) {
+            log.warn("Stock poll rejected: {}", e.getMessage());
+            return pollError(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build());
+        }
+    }
+
+    // A non-exception error result is written like a normal return value
+    private static DeferredResult<StockChanges> pollError(ResponseEntity<?> response) {
+        DeferredResult<StockChanges> result = new DeferredResult<>();
+        result.setErrorResult(response);
+        return result;
+    }
+
+    /**
+     * Conditional on If-None-Match. The ETag is the level itself: the stock engine's level can
+     * be ahead of the stock row's version and last update, and it is the whole response.
+     */
     @GetMapping("/stock/{productId}")
-    public ResponseEntity<Map<String, Integer>> getStock(@PathVariable Long productId) {
+    public ResponseEntity<Map<String, Integer>> getStock(@PathVariable Long productId, WebRequest webRequest) {
         Optional<Integer> stock = productService.getAvailableStock(productId);
-        return stock.map(s -> ResponseEntity.ok(Map.of("quantity", s)))
-                .orElse(ResponseEntity.notFound().build());
+        if (stock.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(String.valueOf(stock.get()))) {
+            return null;
+        }
+        return ResponseEntity.ok(Map.of("quantity", stock.get()));
     }
 
     @GetMapping("/with-stock")
-    public ResponseEntity<List<Product>> getAllProductsWithStock() {
+    public ResponseEntity<List<Product>> getAllProductsWithStock(
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        if (isPaged(pageToken, pageSize)) {
+            log.info("Fetching products page with real-time stock information (pageSize {})", pageSize);
+            return productPage(pageToken, pageSize);
+        }
         log.info("Fetching all products with real-time stock information");
         List<Product> products = productService.getAllProductsWithStock();
         return ResponseEntity.ok(products);
     }
 
+    // Listings stay unpaged for existing clients unless a paging parameter is given
+    private boolean isPaged(String pageToken, Integer pageSize) {
+        return pageToken != null || pageSize != null;
+    }
+
+    private ResponseEntity<List<Product>> productPage(String pageToken, Integer pageSize) {
+        try {
+            ProductPage page = productService.getProductPage(pageToken, pageSize);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextPageToken() != null) {
+                response.header(NEXT_PAGE_TOKEN_HEADER, page.getNextPageToken());
+            }
+            return response.body(page.getProducts());
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadProduct(
             @RequestParam("name") String name,
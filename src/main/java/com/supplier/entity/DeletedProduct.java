@@ -0,0 +1,27 @@
+package com.supplier.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tombstone of a hard-deleted product, so delta syncs can report the deletion.
+ */
+@Entity
+@Table(name = "deleted_products", indexes = @Index(name = "idx_deleted_products_change_version", columnList = "changeVersion"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletedProduct {
+    @Id
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long changeVersion;
+
+    @Column(nullable = false)
+    private LocalDateTime deletedAt;
+}
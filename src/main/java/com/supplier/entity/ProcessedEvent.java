@@ -0,0 +1,25 @@
+package com.supplier.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Webhook event that has already been handled; the primary key makes redeliveries detectable.
+ */
+@Entity
+@Table(name = "processed_events", indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processedAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedEvent {
+    @Id
+    @Column(length = 255)
+    private String eventId;
+
+    @Column(nullable = false)
+    private LocalDateTime processedAt;
+}
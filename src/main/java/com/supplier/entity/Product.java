@@ -13,7 +13,11 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled-lo ids from id_generators (one row update per 50 inserts) instead of IDENTITY,
+    // which makes Hibernate insert each row on persist and disables JDBC batching
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "products_id")
+    @TableGenerator(name = "products_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "products", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -25,7 +29,9 @@ public class Product {
     @Column(nullable = false)
     private Double price;
 
-    @Column(nullable = false)
+    // Not stored: Stock.quantity is the single source of truth. Holds the initial
+    // quantity until the stock row exists, see getAvailableQuantity()
+    @Transient
     private Integer availableQuantity;
 
     @Column(length = 500)
@@ -37,19 +43,27 @@ public class Product {
     @Column(nullable = false)
     private Boolean active = true; // Product active status
 
+    // Set by ProductService on every change, see ChangeVersionClock
+    @Column(nullable = false)
+    private Long changeVersion;
+
     @OneToOne(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
     private Stock stock;
 
-    // Helper method to get real-time stock
-    @Transient
-    public Integer getRealTimeStock() {
+    public Integer getAvailableQuantity() {
         if (this.stock != null && this.stock.getQuantity() != null) {
             return this.stock.getQuantity();
         }
         return this.availableQuantity;
     }
 
+    // Helper method to get real-time stock
+    @Transient
+    public Integer getRealTimeStock() {
+        return getAvailableQuantity();
+    }
+
     // Helper method to get last stock update
     @Transient
     public java.time.LocalDateTime getLastStockUpdate() {
@@ -14,7 +14,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Stock {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled-lo ids from id_generators, see Product
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_id")
+    @TableGenerator(name = "stock_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "stock", allocationSize = 50)
     private Long id;
     
     @OneToOne
@@ -27,6 +30,10 @@ public class Stock {
     
     @Column(nullable = false)
     private LocalDateTime lastUpdated;
+
+    // Set on every quantity change, see ChangeVersionClock
+    @Column(nullable = false)
+    private Long changeVersion;
     
     @PrePersist
     @PreUpdate
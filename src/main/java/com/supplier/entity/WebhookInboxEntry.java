@@ -0,0 +1,49 @@
+package com.supplier.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Verified webhook event waiting to be processed (or already processed) by the inbox workers.
+ */
+@Entity
+@Table(name = "webhook_inbox", indexes = @Index(name = "idx_webhook_inbox_status_next_attempt", columnList = "status, nextAttemptAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookInboxEntry {
+    @Id
+    @Column(length = 255)
+    private String eventId;
+
+    @Column(nullable = false)
+    private String type;
+
+    private String sessionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime processedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public enum Status {
+        PENDING, DONE, DEAD
+    }
+}
@@ -0,0 +1,16 @@
+package com.supplier.repository;
+
+import com.supplier.entity.DeletedProduct;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface DeletedProductRepository extends JpaRepository<DeletedProduct, Long> {
+
+    @Query("select d.changeVersion as version, d.productId as productId from DeletedProduct d " +
+            "where d.changeVersion > :since and d.changeVersion <= :until order by d.changeVersion")
+    List<ProductChange> findChanges(@Param("since") long since, @Param("until") long until, Limit limit);
+}
@@ -2,13 +2,20 @@ package com.supplier.repository;
 
 import com.supplier.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import java.util.Optional;
 
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
-    Optional<Payment> findTopByProductIdAndQuantityOrderByTimestampDesc(Long productId, Integer quantity);
     Optional<Payment> findByStripeSessionId(String sessionId);
-    Optional<Payment> findTopByProductIdAndQuantityOrderByCreatedAtDesc(Long productId, Integer quantity);
+
+    // Compare-and-set: only the caller that sees the expected status wins the transition
+    @Modifying
+    @Query("update Payment p set p.status = :to where p.id = :id and p.status = :from")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("from") Payment.PaymentStatus from,
+                         @Param("to") Payment.PaymentStatus to);
 }
@@ -0,0 +1,23 @@
+package com.supplier.repository;
+
+import com.supplier.entity.ProcessedEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, String> {
+
+    // Returns 0 when the event id is already recorded; a concurrent insert of the same id
+    // waits on the key lock until the first transaction commits or rolls back
+    @Modifying
+    @Query(value = "insert ignore into processed_events (event_id, processed_at) values (:eventId, :now)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("eventId") String eventId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from ProcessedEvent e where e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,10 @@
+package com.supplier.repository;
+
+/**
+ * Version and product id of one changed row, for delta syncs.
+ */
+public interface ProductChange {
+    Long getVersion();
+
+    Long getProductId();
+}
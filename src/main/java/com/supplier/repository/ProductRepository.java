@@ -1,13 +1,44 @@
 package com.supplier.repository;
 
 import com.supplier.entity.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+// Product.stock is the inverse side of a one-to-one, which Hibernate cannot load lazily:
+// every listing fetches it in the same query to avoid one stock SELECT per product
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    @EntityGraph(attributePaths = "stock")
     List<Product> findByApprovedTrueAndActiveTrue();
+
+    @EntityGraph(attributePaths = "stock")
     List<Product> findByApprovedFalse();
+
+    @EntityGraph(attributePaths = "stock")
     List<Product> findByActiveFalse();
+
+    @Query("select p from Product p left join fetch p.stock")
+    List<Product> findAllWithStock();
+
+    @EntityGraph(attributePaths = "stock")
+    Optional<Product> findWithStockById(Long id);
+
+    @EntityGraph(attributePaths = "stock")
+    List<Product> findWithStockByIdIn(Collection<Long> ids);
+
+    // Keyset pagination: next page of products after the given id
+    @EntityGraph(attributePaths = "stock")
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Delta sync: products changed within (since, until], oldest change first
+    @Query("select p.changeVersion as version, p.id as productId from Product p " +
+            "where p.changeVersion > :since and p.changeVersion <= :until order by p.changeVersion")
+    List<ProductChange> findChanges(@Param("since") long since, @Param("until") long until, Limit limit);
 }
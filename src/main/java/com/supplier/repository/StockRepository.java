@@ -1,11 +1,63 @@
 package com.supplier.repository;
 
 import com.supplier.entity.Stock;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, Long> {
+
+    // updateQuantity as plain SQL, for JDBC batches of absolute stock levels
+    String BATCH_UPDATE_QUANTITY_SQL =
+            "UPDATE stock SET quantity = ?, last_updated = ?, change_version = ? WHERE product_id = ?";
+
     Optional<Stock> findByProductId(Long productId);
+
+    // Quantities only, so the products are not loaded along with their stock rows
+    @Query("select s.product.id as productId, s.quantity as quantity from Stock s where s.product.id in :productIds")
+    List<StockQuantity> findQuantitiesByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    interface StockQuantity {
+        Long getProductId();
+
+        Integer getQuantity();
+    }
+
+    @Modifying
+    @Query("update Stock s set s.quantity = :quantity, s.lastUpdated = :now, s.changeVersion = :version " +
+            "where s.product.id = :productId")
+    int updateQuantity(@Param("productId") Long productId,
+                       @Param("quantity") Integer quantity,
+                       @Param("now") LocalDateTime now,
+                       @Param("version") long version);
+
+    // Check and decrement in one statement; returns 0 when the stock is missing or too low
+    @Modifying
+    @Query("update Stock s set s.quantity = s.quantity - :quantity, s.lastUpdated = :now, s.changeVersion = :version " +
+            "where s.product.id = :productId and s.quantity >= :quantity")
+    int decrementIfAvailable(@Param("productId") Long productId,
+                             @Param("quantity") Integer quantity,
+                             @Param("now") LocalDateTime now,
+                             @Param("version") long version);
+
+    // Delta sync: stock rows changed within (since, until], oldest change first
+    @Query("select s.changeVersion as version, s.product.id as productId from Stock s " +
+            "where s.changeVersion > :since and s.changeVersion <= :until order by s.changeVersion")
+    List<ProductChange> findChanges(@Param("since") long since, @Param("until") long until, Limit limit);
+
+    // Same, limited to the given products (stock long polls watching a few products)
+    @Query("select s.changeVersion as version, s.product.id as productId from Stock s " +
+            "where s.product.id in :productIds and s.changeVersion > :since and s.changeVersion <= :until " +
+            "order by s.changeVersion")
+    List<ProductChange> findChangesForProducts(@Param("since") long since, @Param("until") long until,
+                                               @Param("productIds") Collection<Long> productIds, Limit limit);
 }
@@ -0,0 +1,33 @@
+package com.supplier.repository;
+
+import com.supplier.entity.WebhookInboxEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface WebhookInboxRepository extends JpaRepository<WebhookInboxEntry, String> {
+
+    // Returns 0 when the event is already in the inbox (Stripe redelivery)
+    @Modifying
+    @Query(value = "insert ignore into webhook_inbox (event_id, type, session_id, status, attempts, received_at, next_attempt_at) " +
+            "values (:eventId, :type, :sessionId, 'PENDING', 0, :now, :now)", nativeQuery = true)
+    int insertIfAbsent(@Param("eventId") String eventId,
+                       @Param("type") String type,
+                       @Param("sessionId") String sessionId,
+                       @Param("now") LocalDateTime now);
+
+    List<WebhookInboxEntry> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+            WebhookInboxEntry.Status status, LocalDateTime now, Limit limit);
+
+    long countByStatus(WebhookInboxEntry.Status status);
+
+    @Modifying
+    @Query("delete from WebhookInboxEntry e where e.status = :status and e.processedAt < :cutoff")
+    int deleteByStatusProcessedBefore(@Param("status") WebhookInboxEntry.Status status,
+                                      @Param("cutoff") LocalDateTime cutoff);
+}
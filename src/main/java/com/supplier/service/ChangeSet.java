@@ -0,0 +1,20 @@
+package com.supplier.service;
+
+import com.supplier.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Products changed or deleted after a sync watermark. Pass version back as the next
+ * watermark; hasMore means the limit was reached and another call should follow at once.
+ */
+@Data
+@AllArgsConstructor
+public class ChangeSet {
+    private List<Product> products;
+    private List<Long> deletedProductIds;
+    private long version;
+    private boolean hasMore;
+}
@@ -0,0 +1,96 @@
+package com.supplier.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Source of the change versions stamped on product, stock and tombstone rows. Every call
+ * to next() returns a new, higher version; the counter is seeded from the highest version
+ * in the database at startup, so like the in-memory stock engine it assumes a single
+ * application instance.
+ *
+ * Versions are handed out before their transaction commits, and transactions can commit
+ * out of order. getCommittedVersion() therefore only advances past a version once its
+ * transaction has completed, so a sync up to that watermark cannot miss a late commit.
+ */
+@Component
+@Slf4j
+public class ChangeVersionClock {
+
+    private static final String[] VERSIONED_TABLES = {"products", "stock", "deleted_products"};
+
+    private long current;
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    // Versions of rolled-back transactions are handed out again after a restart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public ChangeVersionClock(JdbcTemplate jdbcTemplate) {
+        for (String table : VERSIONED_TABLES) {
+            Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(change_version), 0) FROM " + table, Long.class);
+            current = Math.max(current, max);
+        }
+        log.info("Change version clock starts at {}", current);
+    }
+
+    /**
+     * Next version for a row written in the current transaction.
+     */
+    public long next() {
+        long version;
+        synchronized (this) {
+            version = ++current;
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return version;
+            }
+            inFlight.add(version);
+        }
+        trackUntilCompletion(version);
+        return version;
+    }
+
+    /**
+     * Highest version below which every version handed out belongs to a completed
+     * transaction (committed or rolled back).
+     */
+    public synchronized long getCommittedVersion() {
+        return inFlight.isEmpty() ? current : inFlight.first() - 1;
+    }
+
+    /**
+     * Validator for responses built from all versioned rows (the product listing): changes
+     * with every committed change, without a query. Null while any version is in flight,
+     * since a transaction committing below current would not move it; callers then answer
+     * in full. Tags from before a restart never match.
+     */
+    public synchronized String getCatalogTag() {
+        return inFlight.isEmpty() ? epoch + "-" + current : null;
+    }
+
+    // One synchronization per transaction releases all of its versions
+    @SuppressWarnings("unchecked")
+    private void trackUntilCompletion(long version) {
+        List<Long> versions = (List<Long>) TransactionSynchronizationManager.getResource(this);
+        if (versions == null) {
+            List<Long> transactionVersions = new ArrayList<>();
+            versions = transactionVersions;
+            TransactionSynchronizationManager.bindResource(this, transactionVersions);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeVersionClock.this);
+                    synchronized (ChangeVersionClock.this) {
+                        inFlight.removeAll(transactionVersions);
+                    }
+                }
+            });
+        }
+        versions.add(version);
+    }
+}
@@ -0,0 +1,85 @@
+package com.supplier.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs checkouts (and so the blocking payment gateway call) on a dedicated bounded pool instead
+ * of servlet threads. At most checkout.executor.max-concurrency gateway calls are in flight;
+ * up to checkout.executor.queue-capacity more may wait, and anything beyond that is
+ * rejected immediately with CheckoutRejectedException. Callers get a TimeoutException
+ * after checkout.executor.timeout-ms; queued checkouts whose deadline already passed
+ * are dropped without calling the gateway, and a running one that finishes too late has
+ * its payment marked FAILED.
+ */
+@Component
+@Slf4j
+public class CheckoutExecutor {
+
+    private final PaymentService paymentService;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    public CheckoutExecutor(PaymentService paymentService,
+                            @Value("${checkout.executor.max-concurrency:20}") int maxConcurrency,
+                            @Value("${checkout.executor.queue-capacity:200}") int queueCapacity,
+                            @Value("${checkout.executor.timeout-ms:15000}") long timeoutMs) {
+        this.paymentService = paymentService;
+        this.timeoutMs = timeoutMs;
+        // Pool size is the cap on concurrent gateway calls; AbortPolicy gives fast rejection when the queue is full
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("checkout-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Checkout executor started (maxConcurrency={}, queueCapacity={}, timeout={}ms)",
+                maxConcurrency, queueCapacity, timeoutMs);
+    }
+
+    /**
+     * Submits a checkout; see PaymentService.createCheckoutSession for the parameters.
+     * @return future completed with the checkout result, or exceptionally with the checkout
+     *         error or a TimeoutException
+     * @throws CheckoutRejectedException if too many checkouts are already queued
+     */
+    public CompletableFuture<CheckoutResult> submit(Long productId, Integer quantity, Double amount, String currency, String orderId) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        CompletableFuture<CheckoutResult> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isDone() || System.currentTimeMillis() >= deadline) {
+                    log.warn("Dropping checkout for product {} that timed out while queued", productId);
+                    result.completeExceptionally(new TimeoutException("Checkout timed out while queued"));
+                    return;
+                }
+                try {
+                    CheckoutResult checkout = paymentService.createCheckoutSession(productId, quantity, amount, currency, orderId);
+                    if (!result.complete(checkout)) {
+                        // The caller already got a timeout and never saw the checkout URL
+                        paymentService.abandonCheckout(checkout.getPayment());
+                    }
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Checkout rejected for product {}: {} queued, {} active",
+                    productId, executor.getQueue().size(), executor.getActiveCount());
+            throw new CheckoutRejectedException("Too many checkouts in progress, please retry shortly");
+        }
+        return result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,11 @@
+package com.supplier.service;
+
+/**
+ * Thrown when the checkout executor is saturated and a new checkout is refused
+ * instead of queued. Callers should answer 503 so clients back off and retry.
+ */
+public class CheckoutRejectedException extends RuntimeException {
+    public CheckoutRejectedException(String message) {
+        super(message);
+    }
+}
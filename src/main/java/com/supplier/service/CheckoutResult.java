@@ -0,0 +1,16 @@
+package com.supplier.service;
+
+import com.supplier.entity.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of a checkout: the persisted PENDING payment (with its session ID) and the
+ * URL the buyer is redirected to.
+ */
+@Data
+@AllArgsConstructor
+public class CheckoutResult {
+    private Payment payment;
+    private String url;
+}
@@ -0,0 +1,58 @@
+package com.supplier.service;
+
+import com.supplier.entity.Stock;
+import com.supplier.repository.StockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Default stock engine: every reservation is a conditional UPDATE on the stock row.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "stock.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseStockEngine implements StockEngine {
+
+    private final StockRepository stockRepository;
+    private final ChangeVersionClock changeVersionClock;
+
+    @Override
+    @Transactional
+    public boolean reserve(Long productId, int quantity) {
+        // Conditional UPDATE instead of read-check-write: the row lock taken by the update makes
+        // the availability check atomic, so concurrent payments cannot oversell
+        return stockRepository.decrementIfAvailable(productId, quantity, LocalDateTime.now(),
+                changeVersionClock.next()) > 0;
+    }
+
+    @Override
+    public void stockSet(Long productId, int quantity) {
+        // Nothing cached, the database already holds the new level
+    }
+
+    @Override
+    public void productDeleted(Long productId) {
+        // Nothing cached
+    }
+
+    @Override
+    public Optional<Integer> getAvailable(Long productId) {
+        return stockRepository.findByProductId(productId).map(Stock::getQuantity);
+    }
+
+    @Override
+    public Map<Long, Integer> getAvailable(Collection<Long> productIds) {
+        return stockRepository.findQuantitiesByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(StockRepository.StockQuantity::getProductId, StockRepository.StockQuantity::getQuantity));
+    }
+}
@@ -0,0 +1,122 @@
+package com.supplier.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for Stripe, for load testing the checkout, webhook and stock pipeline
+ * without network. Each checkout sleeps for a uniformly distributed latency and fails with
+ * probability payment.gateway.fake.error-rate. Webhooks are Stripe-shaped JSON events signed
+ * with an HMAC-SHA256 of the payload; use {@link #completedEvent} and {@link #sign} to build them.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "fake")
+@Slf4j
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final ObjectMapper objectMapper;
+    private final long minLatencyMs;
+    private final long maxLatencyMs;
+    private final double errorRate;
+    private final byte[] webhookSecret;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public FakePaymentGateway(ObjectMapper objectMapper,
+                              @Value("${payment.gateway.fake.min-latency-ms:50}") long minLatencyMs,
+                              @Value("${payment.gateway.fake.max-latency-ms:300}") long maxLatencyMs,
+                              @Value("${payment.gateway.fake.error-rate:0.0}") double errorRate,
+                              @Value("${payment.gateway.fake.webhook-secret:whsec_fake}") String webhookSecret) {
+        this.objectMapper = objectMapper;
+        this.minLatencyMs = minLatencyMs;
+        this.maxLatencyMs = Math.max(minLatencyMs, maxLatencyMs);
+        this.errorRate = errorRate;
+        this.webhookSecret = webhookSecret.getBytes(StandardCharsets.UTF_8);
+        log.warn("Using fake payment gateway (latency {}-{}ms, error rate {}) - no real payments are taken",
+                minLatencyMs, this.maxLatencyMs, errorRate);
+    }
+
+    @Override
+    public GatewaySession createCheckoutSession(Product product, Payment payment) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(minLatencyMs == maxLatencyMs ? minLatencyMs : random.nextLong(minLatencyMs, maxLatencyMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Interrupted while creating session", e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        if (random.nextDouble() < errorRate) {
+            throw new PaymentGatewayException("Simulated gateway error for payment " + payment.getId());
+        }
+        String sessionId = "cs_fake_" + UUID.randomUUID().toString().replace("-", "");
+        return new GatewaySession(sessionId, "https://checkout.fake.local/pay/" + sessionId);
+    }
+
+    @Override
+    public GatewayEvent verifyWebhook(String payload, String signatureHeader) {
+        byte[] expected = sign(payload).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = signatureHeader == null ? new byte[0] : signatureHeader.getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new WebhookSignatureException("Invalid signature", null);
+        }
+        try {
+            JsonNode event = objectMapper.readTree(payload);
+            JsonNode sessionId = event.path("data").path("object").path("id");
+            return new GatewayEvent(event.path("id").asText(), event.path("type").asText(),
+                    sessionId.isMissingNode() ? null : sessionId.asText());
+        } catch (Exception e) {
+            throw new PaymentGatewayException("Invalid payload", e);
+        }
+    }
+
+    /**
+     * Highest number of checkout calls that were in the gateway at the same time.
+     */
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * Builds a checkout.session.completed event payload for the given session.
+     */
+    public String completedEvent(String sessionId) {
+        return objectMapper.createObjectNode()
+                .put("id", "evt_fake_" + UUID.randomUUID().toString().replace("-", ""))
+                .put("type", GatewayEvent.CHECKOUT_SESSION_COMPLETED)
+                .set("data", objectMapper.createObjectNode()
+                        .set("object", objectMapper.createObjectNode().put("id", sessionId)))
+                .toString();
+    }
+
+    /**
+     * Signature header value that {@link #verifyWebhook} accepts for this payload.
+     */
+    public String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret, "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.supplier.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Verified webhook event; sessionId is set for checkout session events, null otherwise.
+ */
+@Data
+@AllArgsConstructor
+public class GatewayEvent {
+    public static final String CHECKOUT_SESSION_COMPLETED = "checkout.session.completed";
+
+    private String id;
+    private String type;
+    private String sessionId;
+}
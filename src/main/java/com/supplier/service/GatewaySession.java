@@ -0,0 +1,11 @@
+package com.supplier.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class GatewaySession {
+    private String id;
+    private String url;
+}
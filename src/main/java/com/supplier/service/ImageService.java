@@ -1,9 +1,12 @@
 package com.supplier.service;
 
+import jakarta.activation.DataHandler;
+import jakarta.activation.FileDataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -23,39 +26,34 @@ public class ImageService {
      * @return raw image bytes
      */
     public byte[] getImageBytes(String imagePath) {
-        if (imagePath == null || imagePath.trim().isEmpty()) {
+        Path filePath = resolveImagePath(imagePath);
+        if (filePath == null) {
             return null;
         }
 
         try {
-            // Handle both relative paths starting with /uploads/ and absolute paths
-            Path filePath;
-            if (imagePath.startsWith("/uploads/")) {
-                // Remove the /uploads/ prefix and resolve against upload directory
-                String filename = imagePath.substring("/uploads/".length());
-                filePath = Paths.get(uploadDir, filename);
-            } else if (imagePath.startsWith("http")) {
-                // Skip external URLs - cannot convert to bytes
-                log.warn("Cannot convert external URL to bytes: {}", imagePath);
-                return null;
-            } else {
-                // Try as absolute path
-                filePath = Paths.get(imagePath);
-            }
-
-            if (!Files.exists(filePath)) {
-                log.warn("Image file not found: {}", filePath);
-                return null;
-            }
-
             return Files.readAllBytes(filePath);
-
         } catch (IOException e) {
             log.error("Error reading image file: {}", imagePath, e);
             return null;
         }
     }
 
+    /**
+     * Wraps an image file in a DataHandler without reading it into memory.
+     * The file is only opened when the SOAP response is written, either as an
+     * MTOM attachment or inline base64 for non-MTOM clients.
+     * @param imagePath relative path to the image (e.g., "/uploads/filename.jpg")
+     * @return data handler streaming the file, or null if the file is not available
+     */
+    public DataHandler getImageDataHandler(String imagePath) {
+        Path filePath = resolveImagePath(imagePath);
+        if (filePath == null) {
+            return null;
+        }
+        return new DataHandler(new ImageFileDataSource(filePath.toFile(), getImageContentType(imagePath)));
+    }
+
     /**
      * Converts an image file to base64 encoded string
      * @param imagePath relative path to the image (e.g., "/uploads/filename.jpg")
@@ -79,11 +77,82 @@ public class ImageService {
             return null;
         }
 
-        int lastDotIndex = imagePath.lastIndexOf('.');
-        if (lastDotIndex > 0 && lastDotIndex < imagePath.length() - 1) {
-            return imagePath.substring(lastDotIndex + 1).toLowerCase();
+        // Only look at the file name, ignoring query strings and host names of external URLs
+        String fileName = imagePath;
+        int queryIndex = fileName.indexOf('?');
+        if (queryIndex >= 0) {
+            fileName = fileName.substring(0, queryIndex);
+        }
+        fileName = fileName.substring(fileName.lastIndexOf('/') + 1);
+
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex > 0 && lastDotIndex < fileName.length() - 1) {
+            return fileName.substring(lastDotIndex + 1).toLowerCase();
         }
 
         return "jpg"; // default format
     }
+
+    /**
+     * Maps an image path to the MIME type used for SOAP attachments
+     * @param imagePath path to the image
+     * @return MIME type (e.g., "image/jpeg")
+     */
+    public String getImageContentType(String imagePath) {
+        String format = getImageFormat(imagePath);
+        if (format == null) {
+            return "application/octet-stream";
+        }
+        return switch (format) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "webp" -> "image/webp";
+            case "svg" -> "image/svg+xml";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private Path resolveImagePath(String imagePath) {
+        if (imagePath == null || imagePath.trim().isEmpty()) {
+            return null;
+        }
+
+        // Handle both relative paths starting with /uploads/ and absolute paths
+        Path filePath;
+        if (imagePath.startsWith("/uploads/")) {
+            // Remove the /uploads/ prefix and resolve against upload directory
+            String filename = imagePath.substring("/uploads/".length());
+            filePath = Paths.get(uploadDir, filename);
+        } else if (imagePath.startsWith("http")) {
+            // Skip external URLs - cannot convert to bytes
+            log.warn("Cannot convert external URL to bytes: {}", imagePath);
+            return null;
+        } else {
+            // Try as absolute path
+            filePath = Paths.get(imagePath);
+        }
+
+        if (!Files.exists(filePath)) {
+            log.warn("Image file not found: {}", filePath);
+            return null;
+        }
+
+        return filePath;
+    }
+
+    // FileDataSource guesses the type from mime.types, which is usually missing for images
+    private static class ImageFileDataSource extends FileDataSource {
+        private final String contentType;
+
+        ImageFileDataSource(File file, String contentType) {
+            super(file);
+            this.contentType = contentType;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+    }
 }
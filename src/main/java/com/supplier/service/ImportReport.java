@@ -0,0 +1,27 @@
+package com.supplier.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. Only the first ProductImporter.MAX_REPORTED_ERRORS
+ * row errors are listed; failed counts all of them.
+ */
+@Data
+public class ImportReport {
+    private int imported;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+    private long elapsedMs;
+    private double rowsPerSecond;
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,292 @@
+package com.supplier.service;
+
+import com.supplier.entity.Stock;
+import com.supplier.repository.StockRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stock engine for flash sales: reservations are compare-and-set decrements on one
+ * in-memory counter per product, so hot SKUs no longer queue on a MySQL row lock.
+ * Changed products are written back in JDBC batches to the stock table every
+ * stock.engine.flush-interval-ms. Flushed products are evicted from the product cache and
+ * published to the stock change bus again, since their new rows and change versions only
+ * exist from then on.
+ *
+ * Each reservation also inserts a stock_reservations row in the reserving transaction (an
+ * insert of its own, not an update of the hot stock row), which the flush deletes once the
+ * stock row includes it. Counters are loaded on first use from the stock row minus the
+ * journal rows left over, so after a crash the units reserved since the last flush are not
+ * sold again. Where a flush and a reservation overlap, the journal may still hold a row the
+ * stock row already includes; a crash then undersells until the next absolute update, never
+ * oversells. A reservation made in a transaction that rolls back gives its units back.
+ *
+ * Product bodies (availableQuantity/realTimeStock over REST and SOAP, and their ETags) are
+ * built from the stock row, so they trail getAvailable() by up to one flush interval. The
+ * counters are authoritative while this engine is active, so it must only be enabled on a
+ * single application instance.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stock.engine", havingValue = "memory")
+public class InMemoryStockEngine implements StockEngine {
+
+    private static final String INSERT_RESERVATION_SQL =
+            "INSERT INTO stock_reservations (reservation_id, product_id, quantity, created_at) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_RESERVATION_SQL = "DELETE FROM stock_reservations WHERE reservation_id = ?";
+    private static final String DELETE_PRODUCT_RESERVATIONS_SQL = "DELETE FROM stock_reservations WHERE product_id = ?";
+
+    private final StockRepository stockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeVersionClock changeVersionClock;
+    private final StockChangeBus stockChangeBus;
+    private final ProductCache productCache;
+
+    private final Map<Long, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Committed journal rows per product that no flush has deleted yet
+    private final Map<Long, Set<String>> journaled = new ConcurrentHashMap<>();
+
+    public InMemoryStockEngine(StockRepository stockRepository, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager, ChangeVersionClock changeVersionClock,
+                               StockChangeBus stockChangeBus, ProductCache productCache) {
+        this.stockRepository = stockRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Own transactions, also when called from another transaction's afterCommit
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.changeVersionClock = changeVersionClock;
+        this.stockChangeBus = stockChangeBus;
+        this.productCache = productCache;
+        log.info("In-memory stock engine enabled");
+    }
+
+    @Override
+    public boolean reserve(Long productId, int quantity) {
+        AtomicInteger counter = counter(productId);
+        if (counter == null) {
+            return false;
+        }
+        // Hard floor at zero: only decrement if the value we read is still current
+        int current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+
+        String reservationId = UUID.randomUUID().toString();
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        try {
+            // Joins the reserving transaction, so the row commits or rolls back with the sale
+            if (inTransaction) {
+                journal(reservationId, productId, quantity);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> journal(reservationId, productId, quantity));
+            }
+        } catch (RuntimeException e) {
+            counter.addAndGet(quantity);
+            throw e;
+        }
+        if (!inTransaction) {
+            committed(productId, reservationId);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // An unknown outcome keeps the units taken: underselling is safe, overselling is not
+                if (status != STATUS_ROLLED_BACK) {
+                    committed(productId, reservationId);
+                    return;
+                }
+                counter.addAndGet(quantity);
+                // Marked dirty on rollback too: a flush in between may have written the taken units
+                dirty.add(productId);
+            }
+        });
+        return true;
+    }
+
+    private void journal(String reservationId, Long productId, int quantity) {
+        jdbcTemplate.update(INSERT_RESERVATION_SQL, reservationId, productId, quantity, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private void committed(Long productId, String reservationId) {
+        journaled.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(reservationId);
+        dirty.add(productId);
+    }
+
+    @Override
+    public void stockSet(Long productId, int quantity) {
+        // Replace the counter with the new level; mark dirty so an older value being flushed
+        // concurrently is overwritten again by the next flush
+        counters.computeIfAbsent(productId, id -> new AtomicInteger()).set(quantity);
+        dirty.add(productId);
+    }
+
+    @Override
+    public void productDeleted(Long productId) {
+        // Later reservations reload from the database, which no longer has a stock row
+        counters.remove(productId);
+        dirty.remove(productId);
+        journaled.remove(productId);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(DELETE_PRODUCT_RESERVATIONS_SQL, productId));
+    }
+
+    @Override
+    public Optional<Integer> getAvailable(Long productId) {
+        AtomicInteger counter = counter(productId);
+        return counter == null ? Optional.empty() : Optional.of(counter.get());
+    }
+
+    @Override
+    public Map<Long, Integer> getAvailable(Collection<Long> productIds) {
+        Map<Long, Integer> available = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            AtomicInteger counter = counters.get(productId);
+            if (counter != null) {
+                available.put(productId, counter.get());
+            } else {
+                missing.add(productId);
+            }
+        }
+        // Load every counter that is not in memory yet with one query (plus one for the journal)
+        if (!missing.isEmpty()) {
+            List<StockRepository.StockQuantity> stocks = stockRepository.findQuantitiesByProductIdIn(missing);
+            Map<Long, Map<String, Integer>> reservations = stocks.isEmpty()
+                    ? Map.of() : findJournalRows(stocks.stream().map(StockRepository.StockQuantity::getProductId).toList());
+            for (StockRepository.StockQuantity stock : stocks) {
+                AtomicInteger counter = load(stock.getProductId(), stock.getQuantity(),
+                        reservations.getOrDefault(stock.getProductId(), Map.of()));
+                available.put(stock.getProductId(), counter.get());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Writes the current level of every changed product back to the stock table.
+     */
+    @Scheduled(fixedDelayString = "${stock.engine.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(dirty);
+        dirty.removeAll(productIds);
+        // A product deleted since it was marked dirty has no counter any more
+        productIds.removeIf(productId -> !counters.containsKey(productId));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<String> written = new ArrayList<>();
+        try {
+            // Pooled connections are not in auto-commit mode, so the batch needs a transaction
+            int[] updated = transactionTemplate.execute(status -> {
+                List<Object[]> stockUpdates = new ArrayList<>(productIds.size());
+                for (Long productId : productIds) {
+                    // Journal rows first: every reservation committed so far is in the counter read after
+                    written.addAll(journaled.getOrDefault(productId, Set.of()));
+                    int quantity = counters.getOrDefault(productId, new AtomicInteger()).get();
+                    stockUpdates.add(new Object[]{quantity, now, changeVersionClock.next(), productId});
+                }
+                int[] rows = jdbcTemplate.batchUpdate(StockRepository.BATCH_UPDATE_QUANTITY_SQL, stockUpdates);
+                jdbcTemplate.batchUpdate(DELETE_RESERVATION_SQL, written.stream().map(id -> new Object[]{id}).toList());
+                return rows;
+            });
+            for (Long productId : productIds) {
+                Set<String> reservationIds = journaled.get(productId);
+                if (reservationIds != null) {
+                    reservationIds.removeAll(written);
+                }
+            }
+            List<Long> flushed = new ArrayList<>(productIds.size());
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    // Product was deleted, stop tracking it
+                    counters.remove(productIds.get(i));
+                } else {
+                    flushed.add(productIds.get(i));
+                }
+            }
+            // Committed: cached products still hold the previous rows
+            flushed.forEach(productCache::evict);
+            stockChangeBus.publish(flushed);
+            log.debug("Flushed stock levels for {} products", productIds.size());
+        } catch (RuntimeException e) {
+            log.error("Stock flush failed, will retry: {}", e.getMessage(), e);
+            dirty.addAll(productIds);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private AtomicInteger counter(Long productId) {
+        AtomicInteger counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        Optional<Stock> stock = stockRepository.findByProductId(productId);
+        if (stock.isEmpty()) {
+            return null;
+        }
+        return load(productId, stock.get().getQuantity(), findJournalRows(List.of(productId)).getOrDefault(productId, Map.of()));
+    }
+
+    // Another thread may have loaded the counter first; keep whichever counter won
+    private AtomicInteger load(Long productId, int stockQuantity, Map<String, Integer> reservations) {
+        return counters.computeIfAbsent(productId, id -> {
+            if (!reservations.isEmpty()) {
+                // Left by a previous process: not in the stock row yet, the next flush writes and deletes them
+                journaled.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).addAll(reservations.keySet());
+                dirty.add(id);
+            }
+            int reserved = reservations.values().stream().mapToInt(Integer::intValue).sum();
+            return new AtomicInteger(Math.max(0, stockQuantity - reserved));
+        });
+    }
+
+    // Reservation id and quantity of every journal row, per product
+    private Map<Long, Map<String, Integer>> findJournalRows(Collection<Long> productIds) {
+        Map<Long, Map<String, Integer>> rows = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT reservation_id, product_id, quantity FROM stock_reservations WHERE product_id IN (:productIds)",
+                Map.of("productIds", productIds),
+                (RowCallbackHandler) rs -> rows.computeIfAbsent(rs.getLong("product_id"), id -> new HashMap<>())
+                        .put(rs.getString("reservation_id"), rs.getInt("quantity")));
+        return rows;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.supplier.service;
+
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+
+/**
+ * Payment provider behind checkout and webhook handling. Selected with payment.gateway:
+ * "stripe" (default) or "fake", an in-process stand-in for load testing without network.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Creates a hosted checkout session for a saved PENDING payment.
+     * @throws PaymentGatewayException if the provider call fails
+     */
+    GatewaySession createCheckoutSession(Product product, Payment payment);
+
+    /**
+     * Verifies a webhook signature and extracts the event.
+     * @throws WebhookSignatureException if the signature does not match
+     * @throws PaymentGatewayException if the payload cannot be parsed
+     */
+    GatewayEvent verifyWebhook(String payload, String signatureHeader);
+}
@@ -1,19 +1,13 @@
 package com.supplier.service;
 
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
-import com.stripe.param.checkout.SessionCreateParams;
 import com.supplier.entity.Payment;
 import com.supplier.entity.Product;
 import com.supplier.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.annotation.PostConstruct;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,37 +18,19 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final ProductService productService;
-
-    @Value("${stripe.api.key}")
-    private String stripeApiKey;
-
-    @Value("${stripe.success.url}")
-    private String successUrl;
-
-    @Value("${stripe.cancel.url}")
-    private String cancelUrl;
-
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = stripeApiKey;
-    }
+    private final PaymentGateway paymentGateway;
+    private final WebhookEventStore webhookEventStore;
 
     /**
-     * Creates a Stripe checkout session, saves the Payment, returns checkout URL.
+     * Creates a checkout session with the payment gateway, saves the Payment and returns it
+     * with the checkout URL, so callers need no lookup to find the payment.
+     * Not transactional on purpose: the PENDING payment is saved before the gateway call
+     * and the session ID attached after it, each in its own short transaction, so no
+     * database connection is held during the round trip to the gateway.
      */
-    @Transactional
-    public String createCheckoutSession(Long productId, Integer quantity, Double amount, String currency, String orderId) throws StripeException {
+    public CheckoutResult createCheckoutSession(Long productId, Integer quantity, Double amount, String currency, String orderId) {
         log.info("Creating checkout session for product {} with quantity {} and amount {} {}", productId, quantity, amount, currency);
 
-        // Check database connection by trying to access the repository
-        try {
-            long paymentCount = paymentRepository.count();
-            log.info("Database connection verified. Total payments in database: {}", paymentCount);
-        } catch (Exception e) {
-            log.error("Database connection failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Database connection failed: " + e.getMessage());
-        }
-
         Optional<Product> productOpt = productService.getProductById(productId);
         if (productOpt.isEmpty()) {
             log.error("Product not found with ID: {}", productId);
@@ -79,58 +55,77 @@ public class PaymentService {
         
         log.info("Stock check passed: requested {}, available {}", quantity, availableStock.get());
 
-        SessionCreateParams params = SessionCreateParams.builder()
-                .setMode(SessionCreateParams.Mode.PAYMENT)
-                .setSuccessUrl(successUrl)
-                .setCancelUrl(cancelUrl)
-                .addLineItem(
-                        SessionCreateParams.LineItem.builder()
-                                .setQuantity((long) quantity)
-                                .setPriceData(
-                                        SessionCreateParams.LineItem.PriceData.builder()
-                                                .setCurrency(currency.toLowerCase())
-                                                .setUnitAmount((long) (amount * 100))
-                                                .setProductData(
-                                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                                .setName(product.getName())
-                                                                .setDescription(product.getDescription())
-                                                                .build()
-                                                )
-                                                .build()
-                                )
-                                .build()
-                )
-                .putMetadata("product_id", productId.toString())
-                .putMetadata("quantity", quantity.toString())
-                .putMetadata("order_id", orderId)
-                .build();
-
-        Session session = Session.create(params);
-        log.info("Stripe session created successfully with ID: {}", session.getId());
-
-        // Save payment record
+        // Phase 1: reserve a PENDING payment record
+        Payment payment = new Payment();
+        payment.setProductId(productId);
+        payment.setOrderId(orderId);
+        payment.setAmount(amount);
+        payment.setStatus(Payment.PaymentStatus.PENDING);
+        payment.setQuantity(quantity);
+        payment.setCurrency(currency);
         try {
-            Payment payment = new Payment();
-            payment.setProductId(productId);
-            payment.setOrderId(orderId);
-            payment.setAmount(amount);
-            payment.setStatus(Payment.PaymentStatus.PENDING);
-            payment.setStripeSessionId(session.getId());
-            payment.setQuantity(quantity);
-            payment.setCurrency(currency);
-            
-            log.info("Payment object created: {}", payment);
-            
-            paymentRepository.save(payment);
+            payment = paymentRepository.save(payment);
             log.info("Payment record saved successfully with ID: {}", payment.getId());
         } catch (Exception e) {
             log.error("Error saving payment record: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save payment record: " + e.getMessage());
         }
 
-        return session.getUrl();
+        // Phase 2: call the gateway outside of any transaction
+        GatewaySession session;
+        try {
+            session = paymentGateway.createCheckoutSession(product, payment);
+        } catch (RuntimeException e) {
+            payment.setStatus(Payment.PaymentStatus.FAILED);
+            paymentRepository.save(payment);
+            log.error("Checkout session creation failed for payment {}: {}", payment.getId(), e.getMessage());
+            throw e;
+        }
+        log.info("Checkout session created successfully with ID: {}", session.getId());
+
+        // Phase 3: attach the session ID to the payment
+        payment.setStripeSessionId(session.getId());
+        paymentRepository.save(payment);
+        log.info("Payment {} linked to checkout session {}", payment.getId(), session.getId());
+
+        return new CheckoutResult(payment, session.getUrl());
+    }
+
+    /**
+     * Marks a PENDING checkout FAILED when its caller gave up before getting the checkout URL,
+     * so no one can pay for it; a later webhook for its session finds it not PENDING and skips it.
+     */
+    @Transactional
+    public void abandonCheckout(Payment payment) {
+        if (paymentRepository.transitionStatus(payment.getId(),
+                Payment.PaymentStatus.PENDING, Payment.PaymentStatus.FAILED) == 0) {
+            log.info("Abandoned payment {} is no longer PENDING, leaving it", payment.getId());
+            return;
+        }
+        log.warn("Payment {} (session {}) marked FAILED: its checkout timed out",
+                payment.getId(), payment.getStripeSessionId());
+    }
+
+    /**
+     * Handles a verified webhook event once; redeliveries of the same event id are skipped.
+     */
+    @Transactional
+    public void handleWebhookEvent(GatewayEvent event) {
+        if (!webhookEventStore.markProcessed(event.getId())) {
+            log.info("Skipping duplicate webhook event {}", event.getId());
+            return;
+        }
+        if (GatewayEvent.CHECKOUT_SESSION_COMPLETED.equals(event.getType()) && event.getSessionId() != null) {
+            log.info("Payment Success! Session ID: {}", event.getSessionId());
+            handleSuccessfulPayment(event.getSessionId());
+        }
     }
 
+    /**
+     * Marks the session's payment SUCCESS and reduces stock. Safe to call repeatedly (webhook
+     * retries, success page reloads): only the call that moves the payment from PENDING
+     * reduces stock.
+     */
     @Transactional
     public void handleSuccessfulPayment(String sessionId) {
         log.info("Handling successful payment for session: {}", sessionId);
@@ -138,8 +133,12 @@ public class PaymentService {
         Optional<Payment> paymentOpt = paymentRepository.findByStripeSessionId(sessionId);
         if (paymentOpt.isPresent()) {
             Payment payment = paymentOpt.get();
-            payment.setStatus(Payment.PaymentStatus.SUCCESS);
-            paymentRepository.save(payment);
+            if (payment.getStatus() != Payment.PaymentStatus.PENDING
+                    || paymentRepository.transitionStatus(payment.getId(),
+                            Payment.PaymentStatus.PENDING, Payment.PaymentStatus.SUCCESS) == 0) {
+                log.info("Payment {} already {}, nothing to do", payment.getId(), payment.getStatus());
+                return;
+            }
 
             // Reduce stock
             productService.reduceStock(payment.getProductId(), payment.getQuantity());
@@ -165,9 +164,14 @@ public class PaymentService {
             Payment payment = paymentOpt.get();
             try {
                 Payment.PaymentStatus newStatus = Payment.PaymentStatus.valueOf(status.toUpperCase());
-                payment.setStatus(newStatus);
-                paymentRepository.save(payment);
+                Payment.PaymentStatus oldStatus = payment.getStatus();
+                if (oldStatus == newStatus
+                        || paymentRepository.transitionStatus(paymentId, oldStatus, newStatus) == 0) {
+                    log.info("Payment {} status unchanged or changed concurrently, skipping", paymentId);
+                    return;
+                }
 
+                // Stock is reduced only by the transition into SUCCESS, never twice
                 if (newStatus == Payment.PaymentStatus.SUCCESS) {
                     productService.reduceStock(payment.getProductId(), payment.getQuantity());
                 }
@@ -177,11 +181,4 @@ public class PaymentService {
             }
         }
     }
-
-    /**
-     * Helper for SOAP endpoint: fetch the latest payment by productId and quantity.
-     */
-    public Optional<Payment> getPaymentByProductAndQuantity(Long productId, Integer quantity) {
-        return paymentRepository.findTopByProductIdAndQuantityOrderByCreatedAtDesc(productId, quantity);
-    }
 }
\ No newline at end of file
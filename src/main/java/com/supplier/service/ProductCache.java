@@ -0,0 +1,88 @@
+package com.supplier.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.supplier.entity.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of Product snapshots (with their stock) keyed by id.
+ * Caffeine evicts by size (W-TinyLFU) and by time since the entry was loaded.
+ * Write paths in ProductService call evict() so readers never see stale products
+ * once a change is committed.
+ */
+@Component
+@Slf4j
+public class ProductCache {
+
+    private final Cache<Long, Product> cache;
+    private final LongAdder invalidations = new LongAdder();
+
+    public ProductCache(@Value("${product.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        log.info("Product cache initialised (maximumSize={}, ttl={}s)", maximumSize, ttlSeconds);
+    }
+
+    /**
+     * Returns the cached product or loads it; missing products are not cached.
+     */
+    public Optional<Product> get(Long productId, Function<Long, Optional<Product>> loader) {
+        return Optional.ofNullable(cache.get(productId, id -> loader.apply(id).orElse(null)));
+    }
+
+    /**
+     * Returns the cached products and loads all missing ones with a single loader call.
+     * Ids the loader does not return are absent from the result and not cached.
+     */
+    public Map<Long, Product> getAll(Collection<Long> productIds, Function<Set<? extends Long>, Map<Long, Product>> loader) {
+        return cache.getAll(productIds, loader);
+    }
+
+    /**
+     * Evicts a product now and, when called inside a transaction, again after commit
+     * so a concurrent reader cannot re-cache the pre-commit state.
+     */
+    public void evict(Long productId) {
+        cache.invalidate(productId);
+        invalidations.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(productId);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.sum());
+        return result;
+    }
+}
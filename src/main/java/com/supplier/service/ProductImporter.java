@@ -0,0 +1,247 @@
+package com.supplier.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supplier.entity.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming bulk import of products from CSV or NDJSON. Rows are parsed and validated one
+ * line at a time; valid products are saved with their stock in chunks of
+ * product.import.chunk-size, one transaction (and one persistence context) per chunk, so
+ * memory stays flat and inserts go out as JDBC batches. Invalid rows are reported by line
+ * number and do not stop the import; a chunk that fails to save fails all of its rows.
+ *
+ * CSV needs a header row with at least name, price and availableQuantity (description and
+ * pictureUrl are optional); quoted fields may contain commas and "" but not line breaks.
+ * NDJSON takes one product object with the same property names per line.
+ */
+@Service
+@Slf4j
+public class ProductImporter {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    public enum Format { CSV, NDJSON }
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "price", "availableQuantity");
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public ProductImporter(ProductService productService, ObjectMapper objectMapper,
+                           @Value("${product.import.chunk-size:500}") int chunkSize) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every row of the input.
+     * @param in input to read; not closed
+     * @throws IllegalArgumentException if a CSV header is missing or lacks a required column
+     */
+    public ImportReport importProducts(InputStream in, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        List<String> header = format == Format.CSV ? readHeader(reader) : null;
+        List<Product> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        long lineNumber = header == null ? 0 : 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                Map<String, String> fields = format == Format.CSV ? csvFields(header, line) : jsonFields(line);
+                chunk.add(toProduct(fields));
+                chunkLines.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                fail(report, lineNumber, e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                saveChunk(chunk, chunkLines, report);
+            }
+        }
+        saveChunk(chunk, chunkLines, report);
+
+        report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        report.setRowsPerSecond((report.getImported() + report.getFailed()) * 1000.0 / Math.max(1, report.getElapsedMs()));
+        log.info("Imported {} products ({} rows failed) in {} ms, {} rows/s", report.getImported(), report.getFailed(),
+                report.getElapsedMs(), Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+    private void saveChunk(List<Product> chunk, List<Long> chunkLines, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            productService.createProducts(chunk);
+            report.setImported(report.getImported() + chunk.size());
+        } catch (RuntimeException e) {
+            log.error("Import chunk of {} products failed: {}", chunk.size(), e.getMessage());
+            for (Long chunkLine : chunkLines) {
+                fail(report, chunkLine, "Chunk not saved: " + e.getMessage());
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private static void fail(ImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportReport.RowError(line, message));
+        }
+    }
+
+    private static List<String> readHeader(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw new IllegalArgumentException("CSV header row is missing");
+        }
+        List<String> header = splitCsv(line.startsWith("\uFEFF") ? line.substring(1) : line);
+        for (String column : REQUIRED_COLUMNS) {
+            if (header.stream().noneMatch(column::equalsIgnoreCase)) {
+                throw new IllegalArgumentException("CSV header lacks column " + column);
+            }
+        }
+        return header;
+    }
+
+    private static Map<String, String> csvFields(List<String> header, String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns, found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            fields.put(header.get(i).toLowerCase(Locale.ROOT), values.get(i));
+        }
+        return fields;
+    }
+
+    private Map<String, String> jsonFields(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        node.fields().forEachRemaining(field -> {
+            if (!field.getValue().isNull()) {
+                fields.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().asText());
+            }
+        });
+        return fields;
+    }
+
+    // RFC 4180 fields on a single line
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    private static Product toProduct(Map<String, String> fields) {
+        String name = fields.get("name");
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (name.length() > 255) {
+            throw new IllegalArgumentException("name is longer than 255 characters");
+        }
+        String description = emptyToNull(fields.get("description"));
+        if (description != null && description.length() > 1000) {
+            throw new IllegalArgumentException("description is longer than 1000 characters");
+        }
+        String pictureUrl = emptyToNull(fields.get("pictureurl"));
+        if (pictureUrl != null && pictureUrl.length() > 500) {
+            throw new IllegalArgumentException("pictureUrl is longer than 500 characters");
+        }
+
+        double price;
+        int quantity;
+        try {
+            price = Double.parseDouble(required(fields, "price"));
+            quantity = Integer.parseInt(required(fields, "availableQuantity"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("price must be a non-negative number");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("availableQuantity must not be negative");
+        }
+
+        Product product = new Product();
+        product.setName(name.trim());
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setAvailableQuantity(quantity);
+        product.setPictureUrl(pictureUrl);
+        return product;
+    }
+
+    private static String required(Map<String, String> fields, String column) {
+        String value = fields.get(column.toLowerCase(Locale.ROOT));
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value.trim();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
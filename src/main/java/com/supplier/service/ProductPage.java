@@ -0,0 +1,18 @@
+package com.supplier.service;
+
+import com.supplier.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated product listing.
+ * nextPageToken is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class ProductPage {
+    private List<Product> products;
+    private String nextPageToken;
+}
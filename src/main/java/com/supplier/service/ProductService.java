@@ -1,19 +1,51 @@
 package com.supplier.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.supplier.entity.DeletedProduct;
 import com.supplier.entity.Product;
 import com.supplier.entity.Stock;
+import com.supplier.repository.DeletedProductRepository;
+import com.supplier.repository.ProductChange;
 import com.supplier.repository.ProductRepository;
 import com.supplier.repository.StockRepository;
 import jakarta.jws.WebMethod;
+import jakarta.persistence.EntityManager;
 import jakarta.jws.WebService;
+import org.hibernate.jpa.HibernateHints;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -21,101 +53,368 @@ import java.util.Optional;
 @WebService(serviceName = "ProductWebService")
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String PAGE_TOKEN_PREFIX = "after:";
+    private static final int EXPORT_CLEAR_INTERVAL = 500;
+
     private final ProductRepository productRepository;
     private final StockRepository stockRepository;
+    private final DeletedProductRepository deletedProductRepository;
+    private final ChangeVersionClock changeVersionClock;
+    private final ProductCache productCache;
+    private final StockEngine stockEngine;
+    private final StockChangeBus stockChangeBus;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stock.bulk-update.chunk-size:500}")
+    private int stockUpdateChunkSize;
+    // Integer.MIN_VALUE: Connector/J streams the export rows instead of buffering the result
+    @Value("${product.export.fetch-size:-2147483648}")
+    private int exportFetchSize;
     @WebMethod
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productRepository.findAllWithStock();
+    }
+
+    /**
+     * Keyset-paginated product listing ordered by id.
+     * @param pageToken continuation token from the previous page, or null for the first page
+     * @param pageSize number of products per page, capped at MAX_PAGE_SIZE
+     * @throws IllegalArgumentException if the page token is not valid
+     */
+    @Transactional(readOnly = true)
+    public ProductPage getProductPage(String pageToken, Integer pageSize) {
+        int size = pageSize == null || pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        long afterId = decodePageToken(pageToken);
+
+        // Fetch one extra row to know whether another page follows
+        List<Product> products = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1));
+        String nextPageToken = null;
+        if (products.size() > size) {
+            products = products.subList(0, size);
+            nextPageToken = encodePageToken(products.get(size - 1).getId());
+        }
+        return new ProductPage(products, nextPageToken);
+    }
+
+    /**
+     * Writes the whole catalog as a JSON array, streaming rows from the database.
+     * The persistence context is cleared periodically so memory stays flat
+     * regardless of catalog size.
+     * @param out stream to write to; flushed but not closed
+     */
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream out) throws IOException {
+        log.info("Exporting product catalog");
+        long count = 0;
+        // Flushed every EXPORT_CLEAR_INTERVAL rows below, not after every product
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // Fetch size set on this query only; with a streaming result set nothing else may run on
+        // the connection until it is closed, so stock is fetched in the same query
+        try (Stream<Product> products = entityManager
+                .createQuery("select p from Product p left join fetch p.stock order by p.id", Product.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (++count % EXPORT_CLEAR_INTERVAL == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            generator.writeEndArray();
+        }
+        log.info("Exported {} products", count);
+    }
+
+    /**
+     * Products (with stock) changed, and ids of products deleted, after the given version,
+     * at most limit entries (capped at MAX_PAGE_SIZE) per call. Product and stock rows are
+     * read through their change_version indexes, so a sync costs what changed rather than
+     * the catalog size.
+     * @param sinceVersion version returned by the previous call, or 0 for a full sync
+     */
+    @Transactional(readOnly = true)
+    public ChangeSet getChangesSince(long sinceVersion, Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        long until = changeVersionClock.getCommittedVersion();
+
+        // Every row change has its own version, so the merged list can be cut after any entry
+        List<ProductChange> changes = new ArrayList<>();
+        changes.addAll(productRepository.findChanges(sinceVersion, until, Limit.of(size + 1)));
+        changes.addAll(stockRepository.findChanges(sinceVersion, until, Limit.of(size + 1)));
+        List<ProductChange> deletions = deletedProductRepository.findChanges(sinceVersion, until, Limit.of(size + 1));
+        changes.addAll(deletions);
+        changes.sort(Comparator.comparing(ProductChange::getVersion));
+
+        boolean hasMore = changes.size() > size;
+        if (hasMore) {
+            changes = changes.subList(0, size);
+            until = changes.get(size - 1).getVersion();
+        }
+        Set<Long> deletionVersions = deletions.stream().map(ProductChange::getVersion).collect(Collectors.toSet());
+        Set<Long> deletedIds = new LinkedHashSet<>();
+        Set<Long> changedIds = new LinkedHashSet<>();
+        for (ProductChange change : changes) {
+            (deletionVersions.contains(change.getVersion()) ? deletedIds : changedIds).add(change.getProductId());
+        }
+        changedIds.removeAll(deletedIds);
+
+        List<Product> products = new ArrayList<>();
+        if (!changedIds.isEmpty()) {
+            products.addAll(productRepository.findWithStockByIdIn(changedIds));
+            products.sort(Comparator.comparing(Product::getId));
+        }
+        return new ChangeSet(products, List.copyOf(deletedIds), until, hasMore);
+    }
+
+    /**
+     * Current stock levels of the given products (every product when empty) whose stock
+     * changed after the given version, at most MAX_PAGE_SIZE per call. Shares its versions
+     * with getChangesSince, so a client can move between the two.
+     */
+    @Transactional(readOnly = true)
+    public StockChanges getStockChangesSince(long sinceVersion, Collection<Long> productIds) {
+        long until = changeVersionClock.getCommittedVersion();
+        List<ProductChange> changes = productIds.isEmpty()
+                ? stockRepository.findChanges(sinceVersion, until, Limit.of(MAX_PAGE_SIZE + 1))
+                : stockRepository.findChangesForProducts(sinceVersion, until, productIds, Limit.of(MAX_PAGE_SIZE + 1));
+        boolean hasMore = changes.size() > MAX_PAGE_SIZE;
+        if (hasMore) {
+            changes = changes.subList(0, MAX_PAGE_SIZE);
+            until = changes.get(MAX_PAGE_SIZE - 1).getVersion();
+        }
+        List<StockLevel> levels = new ArrayList<>(changes.size());
+        if (!changes.isEmpty()) {
+            // Levels from the stock engine, which may be ahead of the stock table
+            Map<Long, Integer> available = stockEngine.getAvailable(changes.stream().map(ProductChange::getProductId).toList());
+            for (ProductChange change : changes) {
+                Integer quantity = available.get(change.getProductId());
+                if (quantity != null) {
+                    levels.add(new StockLevel(change.getProductId(), quantity));
+                }
+            }
+        }
+        return new StockChanges(levels, until, hasMore);
+    }
+
+    /**
+     * ETag value for product listings, or null when it cannot be trusted right now;
+     * see ChangeVersionClock.getCatalogTag().
+     */
+    public String getCatalogTag() {
+        return changeVersionClock.getCatalogTag();
+    }
+
+    private static String encodePageToken(Long lastId) {
+        byte[] token = (PAGE_TOKEN_PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    private static long decodePageToken(String pageToken) {
+        if (pageToken == null || pageToken.isBlank()) {
+            return 0L;
+        }
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            if (token.startsWith(PAGE_TOKEN_PREFIX)) {
+                return Long.parseLong(token.substring(PAGE_TOKEN_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Fall through to the error below (NumberFormatException is an IllegalArgumentException)
+        }
+        throw new IllegalArgumentException("Invalid page token: " + pageToken);
     }
     @WebMethod
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return productCache.get(id, productRepository::findWithStockById);
+    }
+    /**
+     * Several products with their stock by id: cached ones from the product cache, all
+     * others with one IN query per MAX_PAGE_SIZE ids. Unknown ids are left out of the result.
+     */
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids) {
+        return productCache.getAll(ids, missing -> inChunks(missing).stream()
+                .flatMap(chunk -> productRepository.findWithStockByIdIn(chunk).stream())
+                .collect(Collectors.toMap(Product::getId, Function.identity())));
     }
     @WebMethod
     @Transactional
     public Product createProduct(Product product) {
         log.info("Creating new product: {}", product.getName());
-        Product savedProduct = productRepository.save(product);
+        return productRepository.save(withInitialStock(product));
+    }
 
-        // Create initial stock entry
+    /**
+     * Creates several products and their stock rows in one transaction. Inserts are flushed
+     * as JDBC batches at commit, so callers should pass chunks rather than a whole catalog.
+     */
+    @Transactional
+    public List<Product> createProducts(List<Product> products) {
+        log.info("Creating {} products", products.size());
+        products.forEach(this::withInitialStock);
+        return productRepository.saveAll(products);
+    }
+
+    // Initial stock entry, persisted with the product through the cascade
+    private Product withInitialStock(Product product) {
+        product.setChangeVersion(changeVersionClock.next());
         Stock stock = new Stock();
-        stock.setProduct(savedProduct);
-        stock.setQuantity(savedProduct.getAvailableQuantity());
+        stock.setProduct(product);
+        stock.setQuantity(product.getAvailableQuantity());
         stock.setLastUpdated(LocalDateTime.now());
-        stockRepository.save(stock);
-
-        return savedProduct;
+        stock.setChangeVersion(changeVersionClock.next());
+        product.setStock(stock);
+        return product;
     }
     @WebMethod
     @Transactional
     public Optional<Product> updateStock(Long productId, Integer newQuantity) {
         log.info("Updating stock for product {} to quantity {}", productId, newQuantity);
 
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            product.setAvailableQuantity(newQuantity);
-            productRepository.save(product);
+        // Stock.quantity is the only stored quantity, so this is a single row update
+        int updated = stockRepository.updateQuantity(productId, newQuantity, LocalDateTime.now(), changeVersionClock.next());
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        productCache.evict(productId);
+        // The engine only learns the level once it is committed, as in applyStockLevels
+        afterCommit(() -> stockEngine.stockSet(productId, newQuantity));
+        stockChangeBus.publish(productId);
+
+        return productRepository.findWithStockById(productId);
+    }
 
-            // Update stock table
-            Optional<Stock> stockOpt = stockRepository.findByProductId(productId);
-            if (stockOpt.isPresent()) {
-                Stock stock = stockOpt.get();
-                stock.setQuantity(newQuantity);
-                stock.setLastUpdated(LocalDateTime.now());
-                stockRepository.save(stock);
+    /**
+     * Sets many absolute stock levels, stock.bulk-update.chunk-size at a time: one JDBC batch
+     * of UPDATEs and one transaction per chunk, instead of a transaction per product. Items
+     * are applied in order, so a later item for the same product wins.
+     * @return one result per item, in request order
+     */
+    public List<StockUpdateResult> updateStockLevels(List<StockLevel> levels) {
+        log.info("Bulk stock update for {} items", levels.size());
+        StockUpdateResult[] results = new StockUpdateResult[levels.size()];
+        List<Integer> chunk = new ArrayList<>(stockUpdateChunkSize);
+        for (int i = 0; i < levels.size(); i++) {
+            StockLevel level = levels.get(i);
+            if (level == null || level.getProductId() == null || level.getQuantity() == null || level.getQuantity() < 0) {
+                results[i] = new StockUpdateResult(level == null ? null : level.getProductId(), StockUpdateResult.Status.INVALID,
+                        "productId and a non-negative quantity are required");
+                continue;
             }
+            chunk.add(i);
+            if (chunk.size() == stockUpdateChunkSize) {
+                applyStockLevels(levels, chunk, results);
+            }
+        }
+        applyStockLevels(levels, chunk, results);
+        return Arrays.asList(results);
+    }
+
+    private void applyStockLevels(List<StockLevel> levels, List<Integer> chunk, StockUpdateResult[] results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<StockLevel> applied = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> stockUpdates = new ArrayList<>(chunk.size());
+                for (Integer i : chunk) {
+                    stockUpdates.add(new Object[]{levels.get(i).getQuantity(), now, changeVersionClock.next(),
+                            levels.get(i).getProductId()});
+                }
+                int[] updated = jdbcTemplate.batchUpdate(StockRepository.BATCH_UPDATE_QUANTITY_SQL, stockUpdates);
+                for (int j = 0; j < updated.length; j++) {
+                    StockLevel level = levels.get(chunk.get(j));
+                    if (updated[j] == 0) {
+                        results[chunk.get(j)] = new StockUpdateResult(level.getProductId(), StockUpdateResult.Status.NOT_FOUND,
+                                "No stock for product " + level.getProductId());
+                    } else {
+                        productCache.evict(level.getProductId());
+                        applied.add(level);
+                        results[chunk.get(j)] = new StockUpdateResult(level.getProductId(), StockUpdateResult.Status.UPDATED, null);
+                    }
+                }
+            });
+            // Only tell the engine once the levels are committed
+            applied.forEach(level -> stockEngine.stockSet(level.getProductId(), level.getQuantity()));
+            stockChangeBus.publish(applied.stream().map(StockLevel::getProductId).toList());
+        } catch (RuntimeException e) {
+            log.error("Stock update chunk of {} items failed: {}", chunk.size(), e.getMessage());
+            for (Integer i : chunk) {
+                results[i] = new StockUpdateResult(levels.get(i).getProductId(), StockUpdateResult.Status.FAILED, e.getMessage());
+            }
+        }
+        chunk.clear();
+    }
 
-            return Optional.of(product);
+    // Runs the action once the current transaction has committed, or at once outside one
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-        return Optional.empty();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     public Optional<Integer> getAvailableStock(Long productId) {
-        Optional<Stock> stock = stockRepository.findByProductId(productId);
-        return stock.map(Stock::getQuantity);
+        return stockEngine.getAvailable(productId);
+    }
+
+    // Products without stock are left out
+    public Map<Long, Integer> getAvailableStock(Collection<Long> productIds) {
+        Map<Long, Integer> available = new HashMap<>();
+        inChunks(productIds).forEach(chunk -> available.putAll(stockEngine.getAvailable(chunk)));
+        return available;
+    }
+
+    // Splits IN lists so that padded parameter lists stay far below the driver's placeholder limit
+    private static List<List<Long>> inChunks(Collection<? extends Long> ids) {
+        List<Long> all = List.copyOf(ids);
+        List<List<Long>> chunks = new ArrayList<>((all.size() + MAX_PAGE_SIZE - 1) / MAX_PAGE_SIZE);
+        for (int from = 0; from < all.size(); from += MAX_PAGE_SIZE) {
+            chunks.add(all.subList(from, Math.min(from + MAX_PAGE_SIZE, all.size())));
+        }
+        return chunks;
     }
     @WebMethod
     @Transactional
     public boolean reduceStock(Long productId, Integer quantity) {
         log.info("Reducing stock for product {} by {}", productId, quantity);
 
-        Optional<Stock> stockOpt = stockRepository.findByProductId(productId);
-        if (stockOpt.isPresent()) {
-            Stock stock = stockOpt.get();
-            if (stock.getQuantity() >= quantity) {
-                stock.setQuantity(stock.getQuantity() - quantity);
-                stock.setLastUpdated(LocalDateTime.now());
-                stockRepository.save(stock);
-
-                // Update product available quantity
-                Product product = stock.getProduct();
-                product.setAvailableQuantity(stock.getQuantity());
-                productRepository.save(product);
-
-                return true;
-            }
+        if (!stockEngine.reserve(productId, quantity)) {
+            log.warn("Insufficient or missing stock for product {} (requested {})", productId, quantity);
+            return false;
         }
-        return false;
+        productCache.evict(productId);
+        stockChangeBus.publish(productId);
+        return true;
     }
     @WebMethod
     @Transactional(readOnly = true)
     public List<Product> getAllProductsWithStock() {
         log.info("Fetching all products with real-time stock information");
-        List<Product> products = productRepository.findAll();
-
-        // Ensure stock information is loaded
-        products.forEach(product -> {
-            if (product.getStock() != null) {
-                product.getStock().getQuantity();
-            }
-        });
-
-        return products;
+        return productRepository.findAllWithStock();
     }
 
     public List<Product> getAllProductsWithStockForAdmin() {
-        return productRepository.findAll();
+        return productRepository.findAllWithStock();
     }
 
     // Get products pending approval
@@ -134,7 +433,9 @@ public class ProductService {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
             Product product = productOpt.get();
+            productCache.evict(productId);
             product.setApproved(true);
+            product.setChangeVersion(changeVersionClock.next());
             productRepository.save(product);
             log.info("Product {} approved by admin", productId);
             return true;
@@ -148,7 +449,9 @@ public class ProductService {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
             Product product = productOpt.get();
+            productCache.evict(productId);
             product.setActive(false);
+            product.setChangeVersion(changeVersionClock.next());
             productRepository.save(product);
             log.info("Product {} deactivated by admin", productId);
             return true;
@@ -161,6 +464,7 @@ public class ProductService {
     public boolean deleteProduct(Long productId) {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
+            productCache.evict(productId);
             Product product = productOpt.get();
             
             // First deactivate if not already deactivated
@@ -170,8 +474,10 @@ public class ProductService {
                 log.info("Product {} deactivated before deletion", productId);
             }
             
-            // Now delete permanently
+            // Now delete permanently, leaving a tombstone for delta syncs
             productRepository.delete(product);
+            deletedProductRepository.save(new DeletedProduct(productId, changeVersionClock.next(), LocalDateTime.now()));
+            afterCommit(() -> stockEngine.productDeleted(productId));
             log.info("Product {} permanently deleted by admin", productId);
             return true;
         }
@@ -181,15 +487,10 @@ public class ProductService {
     @Transactional(readOnly = true)
     public Optional<Product> getProductByIdWithStock(Long id) {
         log.info("Fetching product {} with real-time stock information", id);
-        Optional<Product> productOpt = productRepository.findById(id);
-
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            if (product.getStock() != null) {
-                product.getStock().getQuantity();
-            }
-        }
+        return productCache.get(id, productRepository::findWithStockById);
+    }
 
-        return productOpt;
+    public Map<String, Object> getProductCacheStats() {
+        return productCache.getStats();
     }
 }
@@ -0,0 +1,344 @@
+package com.supplier.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of stock changes to push subscribers (SSE streams and long polls).
+ * Publishers only name the products that changed, once their transaction has committed.
+ * One fan-out at a time then reads the current levels of the watched ones with a single
+ * lookup and hands the same values to every interested subscriber, so the reads per
+ * change do not grow with the number of subscribers.
+ *
+ * Each subscriber keeps the changed products (with their latest level) it has not been
+ * told about yet and has at most one delivery running on the stock.stream.dispatch-threads
+ * pool. While a slow client is being written to, further changes to a product collapse
+ * into its one pending entry, so a subscriber never holds more than one entry per product.
+ * Like the change version clock, this only sees changes made by this application instance.
+ */
+@Component
+@Slf4j
+public class StockChangeBus {
+
+    // Pending level of a changed product that has no stock (stock is never negative)
+    private static final int NO_STOCK = -1;
+
+    private final ObjectProvider<ProductService> productService;
+    private final ScheduledExecutorService dispatcher;
+    private final int maxSubscribers;
+    private final long retryDelayMs;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    // Changes and snapshot requests waiting for the next fan-out
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final Queue<Snapshot> snapshots = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean fanOutScheduled = new AtomicBoolean();
+
+    // ProductService publishes to this bus, so it is looked up lazily
+    public StockChangeBus(ObjectProvider<ProductService> productService,
+                          MeterRegistry meterRegistry,
+                          @Value("${stock.stream.dispatch-threads:4}") int dispatchThreads,
+                          @Value("${stock.stream.max-subscribers:1000}") int maxSubscribers,
+                          @Value("${stock.stream.retry-delay-ms:1000}") long retryDelayMs) {
+        this.productService = productService;
+        this.dispatcher = Executors.newScheduledThreadPool(dispatchThreads, new CustomizableThreadFactory("stock-stream-"));
+        this.maxSubscribers = maxSubscribers;
+        this.retryDelayMs = retryDelayMs;
+        Gauge.builder("stock.stream.subscribers", subscriptions, Set::size)
+                .description("Open stock change subscriptions (SSE streams and long polls)")
+                .register(meterRegistry);
+    }
+
+    public void publish(Long productId) {
+        publish(List.of(productId));
+    }
+
+    /**
+     * Notifies subscribers of changed products after the current transaction commits
+     * (nothing is sent on rollback), or at once outside a transaction.
+     */
+    public void publish(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> changedIds = List.copyOf(productIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifySubscribers(changedIds);
+            return;
+        }
+        // afterCompletion rather than afterCommit: the change version clock releases the
+        // transaction's versions in its own afterCompletion, registered before this one, so
+        // a long poll woken here already sees the change below the committed watermark
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    notifySubscribers(changedIds);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param productIds products to watch, or empty for every product
+     * @param listener called with the products changed since its previous call and their
+     *                 levels; never called concurrently for one subscription. An exception
+     *                 from it cancels the subscription
+     * @throws SubscriptionRejectedException if stock.stream.max-subscribers are already open
+     */
+    public Subscription subscribe(Set<Long> productIds, Consumer<Delivery> listener) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new SubscriptionRejectedException("Too many stock subscriptions open, please retry shortly");
+        }
+        Subscription subscription = new Subscription(Set.copyOf(productIds), listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private void notifySubscribers(List<Long> productIds) {
+        changed.addAll(productIds);
+        scheduleFanOut();
+    }
+
+    private void scheduleFanOut() {
+        scheduleFanOut(0);
+    }
+
+    private void scheduleFanOut(long delayMs) {
+        if ((changed.isEmpty() && snapshots.isEmpty()) || !fanOutScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.schedule(this::fanOut, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            fanOutScheduled.set(false);
+        }
+    }
+
+    // Only one fan-out runs at a time, so a level read later is never delivered before an older one
+    private void fanOut() {
+        long delayMs = 0;
+        try {
+            while (!changed.isEmpty() || !snapshots.isEmpty()) {
+                Set<Long> batch = new HashSet<>();
+                for (Iterator<Long> it = changed.iterator(); it.hasNext(); ) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+                List<Snapshot> requested = new ArrayList<>();
+                for (Snapshot snapshot; (snapshot = snapshots.poll()) != null; ) {
+                    requested.add(snapshot);
+                }
+
+                List<Subscription> current = List.copyOf(subscriptions);
+                Set<Long> watched = new HashSet<>();
+                for (Subscription subscription : current) {
+                    watched.addAll(subscription.watched(batch));
+                }
+                requested.forEach(snapshot -> watched.addAll(snapshot.productIds()));
+                if (watched.isEmpty()) {
+                    continue;
+                }
+                Map<Long, Integer> levels;
+                try {
+                    levels = productService.getObject().getAvailableStock(watched);
+                } catch (RuntimeException e) {
+                    // Put the batch back, so subscribers still get these changes once the database answers
+                    changed.addAll(batch);
+                    snapshots.addAll(requested);
+                    delayMs = retryDelayMs;
+                    log.warn("Could not read changed stock levels, retrying in {}ms: {}", delayMs, e.getMessage());
+                    break;
+                }
+                Map<Object, CompletableFuture<Object>> shared = new ConcurrentHashMap<>();
+                for (Subscription subscription : current) {
+                    subscription.enqueue(subscription.watched(batch), levels, shared);
+                }
+                requested.forEach(snapshot -> snapshot.subscription().enqueue(snapshot.productIds(), levels, shared));
+            }
+        } finally {
+            fanOutScheduled.set(false);
+        }
+        // Picks up a change published after the loop's last check but before the flag was cleared
+        scheduleFanOut(delayMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    private record Snapshot(Subscription subscription, Set<Long> productIds) {
+    }
+
+    /**
+     * Products changed since a subscriber's previous delivery, with levels read once per
+     * fan-out and shared by all subscribers.
+     */
+    public static final class Delivery {
+
+        private final Set<Long> productIds;
+        private final Map<Long, Integer> levels;
+        private final Map<Object, CompletableFuture<Object>> shared;
+
+        private Delivery(Set<Long> productIds, Map<Long, Integer> levels, Map<Object, CompletableFuture<Object>> shared) {
+            this.productIds = productIds;
+            this.levels = levels;
+            this.shared = shared;
+        }
+
+        public Set<Long> getProductIds() {
+            return productIds;
+        }
+
+        // Products without stock are left out
+        public Map<Long, Integer> getLevels() {
+            return levels;
+        }
+
+        /**
+         * Loads a value at most once for all subscribers notified by the latest fan-out, e.g.
+         * one query for several long polls resuming from the same version.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T shared(Object key, Supplier<T> loader) {
+            CompletableFuture<Object> created = new CompletableFuture<>();
+            CompletableFuture<Object> existing = shared.putIfAbsent(key, created);
+            if (existing != null) {
+                return (T) existing.join();
+            }
+            try {
+                T value = loader.get();
+                created.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                shared.remove(key, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    public final class Subscription {
+
+        private final Set<Long> productIds;
+        private final Consumer<Delivery> listener;
+        // Latest level per changed product
+        private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+        private volatile Map<Object, CompletableFuture<Object>> shared = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscription(Set<Long> productIds, Consumer<Delivery> listener) {
+            this.productIds = productIds;
+            this.listener = listener;
+        }
+
+        /**
+         * Queues products for delivery as if they had changed, e.g. for an initial snapshot.
+         * Their levels are read by the next fan-out, in order with later changes.
+         */
+        public void offer(Collection<Long> changed) {
+            Set<Long> watched = watched(changed);
+            if (!watched.isEmpty()) {
+                snapshots.add(new Snapshot(this, watched));
+                scheduleFanOut();
+            }
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+            pending.clear();
+        }
+
+        private Set<Long> watched(Collection<Long> changed) {
+            Set<Long> watched = new HashSet<>();
+            for (Long productId : changed) {
+                if (productIds.isEmpty() || productIds.contains(productId)) {
+                    watched.add(productId);
+                }
+            }
+            return watched;
+        }
+
+        private void enqueue(Set<Long> changed, Map<Long, Integer> levels, Map<Object, CompletableFuture<Object>> shared) {
+            if (changed.isEmpty()) {
+                return;
+            }
+            // Set before the levels, so a drain that sees them also sees this fan-out's shared values
+            this.shared = shared;
+            for (Long productId : changed) {
+                pending.put(productId, levels.getOrDefault(productId, NO_STOCK));
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                scheduled.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!pending.isEmpty() && subscriptions.contains(this)) {
+                    Set<Long> batch = new HashSet<>();
+                    Map<Long, Integer> levels = new HashMap<>();
+                    for (Map.Entry<Long, Integer> entry : pending.entrySet()) {
+                        batch.add(entry.getKey());
+                        if (entry.getValue() != NO_STOCK) {
+                            levels.put(entry.getKey(), entry.getValue());
+                        }
+                        // A newer level that arrived meanwhile stays pending
+                        pending.remove(entry.getKey(), entry.getValue());
+                    }
+                    listener.accept(new Delivery(batch, levels, shared));
+                }
+            } catch (RuntimeException e) {
+                log.debug("Stock subscriber failed, cancelling it: {}", e.getMessage());
+                cancel();
+            } finally {
+                scheduled.set(false);
+            }
+            // Picks up a change offered after the loop's last check but before the flag was cleared
+            schedule();
+        }
+    }
+}
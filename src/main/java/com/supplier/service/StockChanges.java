@@ -0,0 +1,19 @@
+package com.supplier.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Current stock levels of the products whose stock changed after a watermark, oldest
+ * change first. Pass version back as the next watermark (it is the same version space as
+ * ChangeSet); hasMore means the limit was reached and another call should follow at once.
+ */
+@Data
+@AllArgsConstructor
+public class StockChanges {
+    private List<StockLevel> levels;
+    private long version;
+    private boolean hasMore;
+}
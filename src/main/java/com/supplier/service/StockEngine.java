@@ -0,0 +1,35 @@
+package com.supplier.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Strategy used by ProductService for stock reads and reservations.
+ * Selected with the stock.engine property: "database" (default) or "memory".
+ */
+public interface StockEngine {
+
+    /**
+     * Atomically takes quantity units if that many are available.
+     * @return false if the product has no stock row or not enough stock
+     */
+    boolean reserve(Long productId, int quantity);
+
+    /**
+     * Called after an absolute stock level was written to the database.
+     */
+    void stockSet(Long productId, int quantity);
+
+    /**
+     * Called after a product and its stock row were deleted.
+     */
+    void productDeleted(Long productId);
+
+    Optional<Integer> getAvailable(Long productId);
+
+    /**
+     * Stock of several products at once; products without a stock row are left out.
+     */
+    Map<Long, Integer> getAvailable(Collection<Long> productIds);
+}
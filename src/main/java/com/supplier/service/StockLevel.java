@@ -0,0 +1,16 @@
+package com.supplier.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Absolute stock level for one product, as pushed by the warehouse sync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevel {
+    private Long productId;
+    private Integer quantity;
+}
@@ -0,0 +1,119 @@
+package com.supplier.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Push delivery of stock levels, fed by the stock change bus, so clients no longer poll
+ * every product they show. SSE streams send "stock" events with the levels that actually
+ * changed; long polls are the fallback for clients that cannot keep a stream open and
+ * resume from a change version, so nothing is missed between two polls.
+ */
+@Service
+public class StockStreamService {
+
+    public static final String STOCK_EVENT = "stock";
+
+    private final ProductService productService;
+    private final StockChangeBus stockChangeBus;
+    private final long sseTimeoutMs;
+    private final long maxPollTimeoutMs;
+
+    public StockStreamService(ProductService productService, StockChangeBus stockChangeBus,
+                              @Value("${stock.stream.sse-timeout-ms:300000}") long sseTimeoutMs,
+                              @Value("${stock.stream.max-poll-timeout-ms:30000}") long maxPollTimeoutMs) {
+        this.productService = productService;
+        this.stockChangeBus = stockChangeBus;
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.maxPollTimeoutMs = maxPollTimeoutMs;
+    }
+
+    /**
+     * Opens an SSE stream of stock levels. Watched products get their current level first;
+     * afterwards each event carries the levels that changed since the previous one.
+     * @param productIds products to watch (at most MAX_PAGE_SIZE), or empty for every product
+     * @throws SubscriptionRejectedException if too many subscriptions are open
+     */
+    public SseEmitter openStream(Set<Long> productIds) {
+        checkWatchList(productIds);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        // Last level sent per product, so engine flushes and rewrites of the same level are not resent
+        Map<Long, Integer> sent = new ConcurrentHashMap<>();
+        StockChangeBus.Subscription subscription = stockChangeBus.subscribe(productIds, delivery -> {
+            List<StockLevel> levels = new ArrayList<>();
+            delivery.getLevels().forEach((productId, quantity) -> {
+                if (!Objects.equals(sent.put(productId, quantity), quantity)) {
+                    levels.add(new StockLevel(productId, quantity));
+                }
+            });
+            if (levels.isEmpty()) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(STOCK_EVENT).data(levels, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        // Initial levels go through the subscription too, so they cannot overtake a newer change
+        subscription.offer(productIds);
+        return emitter;
+    }
+
+    /**
+     * Long poll for stock changes after the given version: answers at once when there are
+     * some, otherwise as soon as a watched product changes, or after the timeout with no
+     * levels and a version to resume from.
+     * @param productIds products to watch (at most MAX_PAGE_SIZE), or empty for every product
+     * @param timeoutMs how long to wait, capped at stock.stream.max-poll-timeout-ms
+     * @throws SubscriptionRejectedException if too many subscriptions are open
+     */
+    public DeferredResult<StockChanges> pollChanges(long sinceVersion, Set<Long> productIds, Long timeoutMs) {
+        checkWatchList(productIds);
+        long timeout = timeoutMs == null || timeoutMs <= 0 ? maxPollTimeoutMs : Math.min(timeoutMs, maxPollTimeoutMs);
+        DeferredResult<StockChanges> result = new DeferredResult<>(timeout);
+        // Subscribe before the first check, so a change committed in between still wakes the poll
+        // Polls resuming from the same version share one query per fan-out
+        List<Object> sharedKey = List.of(sinceVersion, productIds);
+        StockChangeBus.Subscription subscription = stockChangeBus.subscribe(productIds, delivery -> {
+            if (!result.isSetOrExpired()) {
+                completeIfChanged(result, delivery.shared(sharedKey,
+                        () -> productService.getStockChangesSince(sinceVersion, productIds)));
+            }
+        });
+        result.onCompletion(subscription::cancel);
+        result.onTimeout(() -> result.setResult(productService.getStockChangesSince(sinceVersion, productIds)));
+        result.onError(e -> subscription.cancel());
+        if (completeIfChanged(result, productService.getStockChangesSince(sinceVersion, productIds))) {
+            subscription.cancel();
+        }
+        return result;
+    }
+
+    private static boolean completeIfChanged(DeferredResult<StockChanges> result, StockChanges changes) {
+        // With the in-memory engine a reservation is only versioned once flushed, so keep waiting until then
+        return !changes.getLevels().isEmpty() && result.setResult(changes);
+    }
+
+    private static void checkWatchList(Set<Long> productIds) {
+        if (productIds.size() > ProductService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + ProductService.MAX_PAGE_SIZE + " products can be watched");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.supplier.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of one item of a bulk stock update; message is only set when it was not applied.
+ */
+@Data
+@AllArgsConstructor
+public class StockUpdateResult {
+
+    public enum Status { UPDATED, NOT_FOUND, INVALID, FAILED }
+
+    private Long productId;
+    private Status status;
+    private String message;
+}
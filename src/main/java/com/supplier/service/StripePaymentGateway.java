@@ -0,0 +1,102 @@
+package com.supplier.service;
+
+import com.stripe.Stripe;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+import com.stripe.param.checkout.SessionCreateParams;
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
+@Slf4j
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Value("${stripe.api.key}")
+    private String stripeApiKey;
+
+    @Value("${stripe.webhook.secret}")
+    private String endpointSecret;
+
+    @Value("${stripe.success.url}")
+    private String successUrl;
+
+    @Value("${stripe.cancel.url}")
+    private String cancelUrl;
+
+    @Value("${stripe.connect.timeout:5000}")
+    private int stripeConnectTimeout;
+
+    @Value("${stripe.read.timeout:10000}")
+    private int stripeReadTimeout;
+
+    @PostConstruct
+    public void init() {
+        Stripe.apiKey = stripeApiKey;
+        // Bounded so a slow Stripe cannot pin checkout executor threads indefinitely
+        Stripe.setConnectTimeout(stripeConnectTimeout);
+        Stripe.setReadTimeout(stripeReadTimeout);
+    }
+
+    @Override
+    public GatewaySession createCheckoutSession(Product product, Payment payment) {
+        SessionCreateParams params = SessionCreateParams.builder()
+                .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setSuccessUrl(successUrl)
+                .setCancelUrl(cancelUrl)
+                .addLineItem(
+                        SessionCreateParams.LineItem.builder()
+                                .setQuantity((long) payment.getQuantity())
+                                .setPriceData(
+                                        SessionCreateParams.LineItem.PriceData.builder()
+                                                .setCurrency(payment.getCurrency().toLowerCase())
+                                                .setUnitAmount((long) (payment.getAmount() * 100))
+                                                .setProductData(
+                                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                                .setName(product.getName())
+                                                                .setDescription(product.getDescription())
+                                                                .build()
+                                                )
+                                                .build()
+                                )
+                                .build()
+                )
+                .putMetadata("product_id", payment.getProductId().toString())
+                .putMetadata("quantity", payment.getQuantity().toString())
+                .putMetadata("order_id", payment.getOrderId())
+                .build();
+
+        try {
+            Session session = Session.create(params);
+            return new GatewaySession(session.getId(), session.getUrl());
+        } catch (StripeException e) {
+            throw new PaymentGatewayException("Stripe session creation failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public GatewayEvent verifyWebhook(String payload, String signatureHeader) {
+        Event event;
+        try {
+            // Directly use Webhook.constructEvent (not Event.constructFrom!)
+            event = Webhook.constructEvent(payload, signatureHeader, endpointSecret);
+        } catch (SignatureVerificationException e) {
+            throw new WebhookSignatureException("Invalid signature", e);
+        } catch (Exception e) {
+            throw new PaymentGatewayException("Invalid payload", e);
+        }
+
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        String sessionId = object instanceof Session session ? session.getId() : null;
+        return new GatewayEvent(event.getId(), event.getType(), sessionId);
+    }
+}
@@ -0,0 +1,11 @@
+package com.supplier.service;
+
+/**
+ * Thrown when stock.stream.max-subscribers push subscriptions are already open.
+ * Callers should answer 503 so clients back off and retry.
+ */
+public class SubscriptionRejectedException extends RuntimeException {
+    public SubscriptionRejectedException(String message) {
+        super(message);
+    }
+}
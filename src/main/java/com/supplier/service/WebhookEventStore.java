@@ -0,0 +1,72 @@
+package com.supplier.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.supplier.repository.ProcessedEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Deduplicates webhook deliveries by event id. Recently seen ids are answered from a bounded
+ * in-memory LRU; anything else costs one insert into processed_events, whose primary key
+ * decides which delivery wins. The insert joins the caller's transaction, so an event whose
+ * handling rolls back is not recorded and will be processed on redelivery.
+ */
+@Component
+@Slf4j
+public class WebhookEventStore {
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final Cache<String, Boolean> recentEvents;
+    private final long retentionDays;
+
+    public WebhookEventStore(ProcessedEventRepository processedEventRepository,
+                             @Value("${webhook.dedup.cache-size:10000}") long cacheSize,
+                             @Value("${webhook.dedup.retention-days:30}") long retentionDays) {
+        this.processedEventRepository = processedEventRepository;
+        this.recentEvents = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Records the event as processed.
+     * @return true if this is the first delivery, false for a duplicate
+     */
+    @Transactional
+    public boolean markProcessed(String eventId) {
+        if (recentEvents.getIfPresent(eventId) != null) {
+            return false;
+        }
+        if (processedEventRepository.insertIfAbsent(eventId, LocalDateTime.now()) == 0) {
+            recentEvents.put(eventId, Boolean.TRUE);
+            return false;
+        }
+        // Only remember the id once the handling transaction has committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentEvents.put(eventId, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentEvents.put(eventId, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    // Stripe stops retrying after a few days, older ids can never be redelivered
+    @Scheduled(cron = "${webhook.dedup.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = processedEventRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Purged {} processed webhook events older than {} days", purged, retentionDays);
+    }
+}
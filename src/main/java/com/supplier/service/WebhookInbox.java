@@ -0,0 +1,111 @@
+package com.supplier.service;
+
+import com.supplier.entity.WebhookInboxEntry;
+import com.supplier.repository.WebhookInboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Durable inbox of verified webhook events. The webhook endpoint only enqueues and returns,
+ * WebhookInboxWorker processes entries later. A failed entry is retried with exponential
+ * backoff and moved to DEAD after webhook.inbox.max-attempts. DONE entries are purged after
+ * webhook.inbox.retention-days, DEAD entries are kept for inspection.
+ */
+@Component
+@Slf4j
+public class WebhookInbox {
+
+    private final WebhookInboxRepository webhookInboxRepository;
+    private final PaymentService paymentService;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final long retentionDays;
+
+    public WebhookInbox(WebhookInboxRepository webhookInboxRepository,
+                        PaymentService paymentService,
+                        @Value("${webhook.inbox.max-attempts:8}") int maxAttempts,
+                        @Value("${webhook.inbox.backoff-ms:1000}") long backoffMs,
+                        @Value("${webhook.inbox.max-backoff-ms:300000}") long maxBackoffMs,
+                        @Value("${webhook.inbox.retention-days:7}") long retentionDays) {
+        this.webhookInboxRepository = webhookInboxRepository;
+        this.paymentService = paymentService;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Stores a verified event for processing.
+     * @return true if queued, false if the event id was already in the inbox
+     */
+    @Transactional
+    public boolean enqueue(GatewayEvent event) {
+        return webhookInboxRepository.insertIfAbsent(event.getId(), event.getType(), event.getSessionId(),
+                LocalDateTime.now()) > 0;
+    }
+
+    public List<WebhookInboxEntry> findDue(int limit) {
+        return webhookInboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                WebhookInboxEntry.Status.PENDING, LocalDateTime.now(), Limit.of(limit));
+    }
+
+    public long countPending() {
+        return webhookInboxRepository.countByStatus(WebhookInboxEntry.Status.PENDING);
+    }
+
+    /**
+     * Handles the event and marks the entry DONE in the same transaction.
+     */
+    @Transactional
+    public void process(String eventId) {
+        WebhookInboxEntry entry = webhookInboxRepository.findById(eventId).orElse(null);
+        if (entry == null || entry.getStatus() != WebhookInboxEntry.Status.PENDING) {
+            return;
+        }
+        paymentService.handleWebhookEvent(new GatewayEvent(entry.getEventId(), entry.getType(), entry.getSessionId()));
+        entry.setStatus(WebhookInboxEntry.Status.DONE);
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setProcessedAt(LocalDateTime.now());
+        entry.setLastError(null);
+    }
+
+    /**
+     * Records a failed attempt, scheduling a retry or moving the entry to DEAD.
+     */
+    @Transactional
+    public void recordFailure(String eventId, Exception error) {
+        webhookInboxRepository.findById(eventId).ifPresent(entry -> {
+            int attempts = entry.getAttempts() + 1;
+            entry.setAttempts(attempts);
+            String message = String.valueOf(error.getMessage());
+            entry.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+            if (attempts >= maxAttempts) {
+                entry.setStatus(WebhookInboxEntry.Status.DEAD);
+                log.error("Webhook event {} moved to DEAD after {} attempts: {}", entry.getEventId(), attempts, message);
+            } else {
+                long delay = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 20));
+                entry.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000));
+                log.warn("Webhook event {} failed (attempt {}), retrying in {}ms: {}",
+                        entry.getEventId(), attempts, delay, message);
+            }
+        });
+    }
+
+    // Redeliveries of a purged event are still caught by processed_events, which is kept longer
+    @Scheduled(cron = "${webhook.inbox.purge-cron:0 45 3 * * *}")
+    @Transactional
+    public void purgeProcessed() {
+        int purged = webhookInboxRepository.deleteByStatusProcessedBefore(WebhookInboxEntry.Status.DONE,
+                LocalDateTime.now().minusDays(retentionDays));
+        log.info("Purged {} processed webhook inbox entries older than {} days", purged, retentionDays);
+    }
+}
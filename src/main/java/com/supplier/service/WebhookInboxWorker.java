@@ -0,0 +1,129 @@
+package com.supplier.service;
+
+import com.supplier.entity.WebhookInboxEntry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drains the webhook inbox: every webhook.inbox.poll-interval-ms the due entries are fetched
+ * in batches of webhook.inbox.batch-size and processed on webhook.inbox.workers threads.
+ * Publishes webhook.inbox.pending and webhook.inbox.lag (age of the oldest due entry) gauges,
+ * refreshed on every poll.
+ */
+@Component
+@Slf4j
+public class WebhookInboxWorker {
+
+    private final WebhookInbox webhookInbox;
+    private final ExecutorService workers;
+    private final int batchSize;
+    // One drain at a time, so an entry is never handed to two workers by this instance
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMs = new AtomicLong();
+
+    public WebhookInboxWorker(WebhookInbox webhookInbox, MeterRegistry meterRegistry,
+                              @Value("${webhook.inbox.workers:4}") int workerCount,
+                              @Value("${webhook.inbox.batch-size:50}") int batchSize) {
+        this.webhookInbox = webhookInbox;
+        this.workers = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("webhook-"));
+        this.batchSize = batchSize;
+        Gauge.builder("webhook.inbox.pending", pending, AtomicLong::get)
+                .description("Webhook events waiting to be processed")
+                .register(meterRegistry);
+        Gauge.builder("webhook.inbox.lag", lagMs, AtomicLong::get)
+                .description("Age of the oldest due webhook event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${webhook.inbox.poll-interval-ms:500}",
+            fixedDelayString = "${webhook.inbox.poll-interval-ms:500}")
+    public void poll() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("Webhook inbox drain failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Processes due entries until none are left.
+     * @return number of entries attempted
+     */
+    public int drain() {
+        drainLock.lock();
+        try {
+            int attempted = 0;
+            List<WebhookInboxEntry> batch = webhookInbox.findDue(batchSize);
+            updateMetrics(batch);
+            while (!batch.isEmpty()) {
+                List<Future<?>> results = new ArrayList<>(batch.size());
+                for (WebhookInboxEntry entry : batch) {
+                    results.add(workers.submit(() -> processEntry(entry)));
+                }
+                awaitAll(results);
+                attempted += batch.size();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                batch = webhookInbox.findDue(batchSize);
+            }
+            if (attempted > 0) {
+                updateMetrics(List.of());
+            }
+            return attempted;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void processEntry(WebhookInboxEntry entry) {
+        try {
+            webhookInbox.process(entry.getEventId());
+        } catch (Exception e) {
+            webhookInbox.recordFailure(entry.getEventId(), e);
+        }
+    }
+
+    private void awaitAll(List<Future<?>> results) {
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Webhook inbox worker failed: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    private void updateMetrics(List<WebhookInboxEntry> dueBatch) {
+        pending.set(webhookInbox.countPending());
+        lagMs.set(dueBatch.isEmpty() ? 0
+                : Math.max(0, Duration.between(dueBatch.get(0).getReceivedAt(), LocalDateTime.now()).toMillis()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,7 @@
+package com.supplier.service;
+
+public class WebhookSignatureException extends PaymentGatewayException {
+    public WebhookSignatureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -2,30 +2,52 @@ package com.supplier.ws;
 
 import com.supplier.entity.Product;
 import com.supplier.entity.Payment;
+import com.supplier.service.ChangeSet;
+import com.supplier.service.CheckoutExecutor;
+import com.supplier.service.CheckoutResult;
+import com.supplier.service.CheckoutRejectedException;
 import com.supplier.service.PaymentService;
+import com.supplier.service.ProductPage;
 import com.supplier.service.ProductService;
 import com.supplier.service.ImageService;
+import com.supplier.service.StockLevel;
+import com.supplier.service.StockUpdateResult;
+import jakarta.activation.DataHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ws.server.endpoint.annotation.Endpoint;
 import org.springframework.ws.server.endpoint.annotation.PayloadRoot;
 import org.springframework.ws.server.endpoint.annotation.RequestPayload;
 import org.springframework.ws.server.endpoint.annotation.ResponsePayload;
 
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 // Import all generated JAXB classes
 import com.supplier.ws.GetProductByIdRequest;
 import com.supplier.ws.GetProductByIdResponse;
+import com.supplier.ws.GetProductsByIdsRequest;
+import com.supplier.ws.GetProductsByIdsResponse;
+import com.supplier.ws.GetChangesSinceRequest;
+import com.supplier.ws.GetChangesSinceResponse;
 import com.supplier.ws.GetAvailableStockRequest;
 import com.supplier.ws.GetAvailableStockResponse;
+import com.supplier.ws.GetStockLevelsRequest;
+import com.supplier.ws.GetStockLevelsResponse;
 import com.supplier.ws.NotifyPaymentStatusRequest;
 import com.supplier.ws.NotifyPaymentStatusResponse;
 import com.supplier.ws.GetAllProductsRequest;
 import com.supplier.ws.GetAllProductsResponse;
 import com.supplier.ws.ProcessPaymentRequest;
 import com.supplier.ws.ProcessPaymentResponse;
+import com.supplier.ws.UpdateStockLevelsRequest;
+import com.supplier.ws.UpdateStockLevelsResponse;
 
 @Endpoint
 @Slf4j
@@ -35,11 +57,14 @@ public class SupplierEndpoint {
     private final ProductService productService;
     private final PaymentService paymentService;
     private final ImageService imageService;
+    private final CheckoutExecutor checkoutExecutor;
 
-    public SupplierEndpoint(ProductService productService, PaymentService paymentService, ImageService imageService) {
+    public SupplierEndpoint(ProductService productService, PaymentService paymentService, ImageService imageService,
+                            CheckoutExecutor checkoutExecutor) {
         this.productService = productService;
         this.paymentService = paymentService;
         this.imageService = imageService;
+        this.checkoutExecutor = checkoutExecutor;
     }
 
     // 1. Get Product By ID
@@ -86,11 +111,20 @@ public class SupplierEndpoint {
     @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getAllProductsRequest")
     @ResponsePayload
     public GetAllProductsResponse getAllProducts(@RequestPayload GetAllProductsRequest request) {
-        log.info("SOAP request: getAllProducts");
+        boolean includePictureData = !Boolean.FALSE.equals(request.isIncludePictureData());
+        Set<String> fields = new HashSet<>(request.getFields());
+        log.info("SOAP request: getAllProducts (includePictureData={}, fields={})", includePictureData, fields);
         GetAllProductsResponse response = new GetAllProductsResponse();
-        List<Product> products = productService.getAllProducts();
+        List<Product> products;
+        if (request.getPageToken() != null || request.getPageSize() != null) {
+            ProductPage page = productService.getProductPage(request.getPageToken(), request.getPageSize());
+            products = page.getProducts();
+            response.setNextPageToken(page.getNextPageToken());
+        } else {
+            products = productService.getAllProducts();
+        }
         List<com.supplier.ws.Product> wsProducts = products.stream()
-                .map(this::convertToWsProduct)
+                .map(product -> convertToWsProduct(product, includePictureData, fields))
                 .collect(Collectors.toList());
         response.getProducts().addAll(wsProducts);
         return response;
@@ -104,65 +138,191 @@ public class SupplierEndpoint {
                 request.getProductId(), request.getQuantity(), request.getAmount(), request.getCurrency());
         ProcessPaymentResponse response = new ProcessPaymentResponse();
         try {
-            String sessionUrl = paymentService.createCheckoutSession(
+            // Shares the checkout executor's concurrency cap, queue limit and timeout with REST checkouts
+            CheckoutResult result = checkoutExecutor.submit(
                 request.getProductId(), 
                 request.getQuantity(), 
                 request.getAmount(), 
                 request.getCurrency(), 
                 request.getOrderId()
-            );
-            Optional<Payment> paymentOpt = paymentService.getPaymentByProductAndQuantity(request.getProductId(), request.getQuantity());
-            if (paymentOpt.isPresent()) {
-                Payment payment = paymentOpt.get();
-                response.setPaymentId(payment.getId());
-                response.setStatus(payment.getStatus().name());
-                response.setStripeSessionId(payment.getStripeSessionId());
-                response.setUrl(sessionUrl);
-                response.setMessage("Checkout session created successfully");
-            } else {
-                response.setStatus("PENDING");
-                response.setMessage("Checkout session created, payment pending");
-            }
+            ).get();
+            Payment payment = result.getPayment();
+            response.setPaymentId(payment.getId());
+            response.setStatus(payment.getStatus().name());
+            response.setStripeSessionId(payment.getStripeSessionId());
+            response.setUrl(result.getUrl());
+            response.setMessage("Checkout session created successfully");
+        } catch (CheckoutRejectedException e) {
+            log.warn("SOAP processPayment rejected: {}", e.getMessage());
+            response.setStatus("REJECTED");
+            response.setMessage(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setStatus("FAILED");
+            response.setMessage("Failed to create payment: interrupted");
         } catch (Exception e) {
-            log.error("SOAP processPayment error: {}", e.getMessage());
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            String message = cause instanceof TimeoutException ? "Checkout timed out" : cause.getMessage();
+            log.error("SOAP processPayment error: {}", message);
             response.setStatus("FAILED");
-            response.setMessage("Failed to create payment: " + e.getMessage());
+            response.setMessage("Failed to create payment: " + message);
+        }
+        return response;
+    }
+
+    // 6. Update Stock Levels
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "updateStockLevelsRequest")
+    @ResponsePayload
+    public UpdateStockLevelsResponse updateStockLevels(@RequestPayload UpdateStockLevelsRequest request) {
+        log.info("SOAP request: updateStockLevels for {} items", request.getItems().size());
+        List<StockLevel> levels = request.getItems().stream()
+                .map(item -> new StockLevel(item.getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+        UpdateStockLevelsResponse response = new UpdateStockLevelsResponse();
+        for (StockUpdateResult result : productService.updateStockLevels(levels)) {
+            com.supplier.ws.StockUpdateResult wsResult = new com.supplier.ws.StockUpdateResult();
+            wsResult.setProductId(result.getProductId());
+            wsResult.setStatus(result.getStatus().name());
+            wsResult.setMessage(result.getMessage());
+            response.getResults().add(wsResult);
+        }
+        return response;
+    }
+
+    // 7. Get Products By IDs
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getProductsByIdsRequest")
+    @ResponsePayload
+    public GetProductsByIdsResponse getProductsByIds(@RequestPayload GetProductsByIdsRequest request) {
+        boolean includePictureData = !Boolean.FALSE.equals(request.isIncludePictureData());
+        Set<Long> ids = new LinkedHashSet<>(request.getIds());
+        checkIdCount(ids);
+        log.info("SOAP request: getProductsByIds for {} ids (includePictureData={})", ids.size(), includePictureData);
+        GetProductsByIdsResponse response = new GetProductsByIdsResponse();
+        Map<Long, Product> products = productService.getProductsByIds(ids);
+        for (Long id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                response.getProducts().add(convertToWsProduct(product, includePictureData, Set.of()));
+            } else {
+                response.getNotFoundIds().add(id);
+            }
+        }
+        return response;
+    }
+
+    // 8. Get Stock Levels
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getStockLevelsRequest")
+    @ResponsePayload
+    public GetStockLevelsResponse getStockLevels(@RequestPayload GetStockLevelsRequest request) {
+        Set<Long> productIds = new LinkedHashSet<>(request.getProductIds());
+        checkIdCount(productIds);
+        log.info("SOAP request: getStockLevels for {} products", productIds.size());
+        GetStockLevelsResponse response = new GetStockLevelsResponse();
+        Map<Long, Integer> stock = productService.getAvailableStock(productIds);
+        for (Long productId : productIds) {
+            Integer quantity = stock.get(productId);
+            if (quantity != null) {
+                com.supplier.ws.StockLevel level = new com.supplier.ws.StockLevel();
+                level.setProductId(productId);
+                level.setQuantity(quantity);
+                response.getLevels().add(level);
+            } else {
+                response.getNotFoundIds().add(productId);
+            }
+        }
+        return response;
+    }
+
+    // 9. Get Changes Since
+    @PayloadRoot(namespace = NAMESPACE_URI, localPart = "getChangesSinceRequest")
+    @ResponsePayload
+    public GetChangesSinceResponse getChangesSince(@RequestPayload GetChangesSinceRequest request) {
+        boolean includePictureData = !Boolean.FALSE.equals(request.isIncludePictureData());
+        log.info("SOAP request: getChangesSince version {} (limit {})", request.getSinceVersion(), request.getLimit());
+        ChangeSet changes = productService.getChangesSince(request.getSinceVersion(), request.getLimit());
+        GetChangesSinceResponse response = new GetChangesSinceResponse();
+        for (Product product : changes.getProducts()) {
+            response.getProducts().add(convertToWsProduct(product, includePictureData, Set.of()));
         }
+        response.getDeletedProductIds().addAll(changes.getDeletedProductIds());
+        response.setVersion(changes.getVersion());
+        response.setHasMore(changes.isHasMore());
         return response;
     }
 
     // Helper method to convert entity to JAXB object
     private com.supplier.ws.Product convertToWsProduct(Product entityProduct) {
+        return convertToWsProduct(entityProduct, true, Set.of());
+    }
+
+    // Only fills the requested fields (all of them when the set is empty); images are never read when not wanted
+    private com.supplier.ws.Product convertToWsProduct(Product entityProduct, boolean includePictureData, Set<String> fields) {
         com.supplier.ws.Product wsProduct = new com.supplier.ws.Product();
         wsProduct.setId(entityProduct.getId());
-        wsProduct.setName(entityProduct.getName());
-        wsProduct.setDescription(entityProduct.getDescription());
-        wsProduct.setSupplierPrice(entityProduct.getPrice());
-        wsProduct.setDisplayedPrice(entityProduct.getPrice());
-        wsProduct.setAvailableQuantity(entityProduct.getAvailableQuantity());
+        if (wants(fields, "name")) {
+            wsProduct.setName(entityProduct.getName());
+        }
+        if (wants(fields, "description")) {
+            wsProduct.setDescription(entityProduct.getDescription());
+        }
+        if (wants(fields, "supplierPrice")) {
+            wsProduct.setSupplierPrice(entityProduct.getPrice());
+        }
+        if (wants(fields, "displayedPrice")) {
+            wsProduct.setDisplayedPrice(entityProduct.getPrice());
+        }
+        if (wants(fields, "availableQuantity")) {
+            wsProduct.setAvailableQuantity(entityProduct.getAvailableQuantity());
+        }
 
         // Handle optional picture URL and data
         if(entityProduct.getPictureUrl() != null) {
-            wsProduct.setPictureUrl(entityProduct.getPictureUrl());
+            if (wants(fields, "pictureUrl")) {
+                wsProduct.setPictureUrl(entityProduct.getPictureUrl());
+            }
             
-            // Get raw image bytes for SOAP clients (JAXB will handle base64 encoding automatically)
-            byte[] imageBytes = imageService.getImageBytes(entityProduct.getPictureUrl());
-            if (imageBytes != null) {
-                wsProduct.setPictureData(imageBytes);
-                
-                // Set the image format
-                String format = imageService.getImageFormat(entityProduct.getPictureUrl());
-                wsProduct.setPictureFormat(format);
+            // Stream the image from disk; sent as an MTOM attachment or inline base64 depending on the client
+            if (includePictureData && wants(fields, "pictureData")) {
+                DataHandler imageData = imageService.getImageDataHandler(entityProduct.getPictureUrl());
+                if (imageData != null) {
+                    wsProduct.setPictureData(imageData);
+                    
+                    // Set the image format
+                    String format = imageService.getImageFormat(entityProduct.getPictureUrl());
+                    wsProduct.setPictureFormat(format);
+                }
+            } else if (wants(fields, "pictureFormat")) {
+                wsProduct.setPictureFormat(imageService.getImageFormat(entityProduct.getPictureUrl()));
             }
         }
 
-        wsProduct.setRealTimeStock(entityProduct.getRealTimeStock());
+        if (wants(fields, "realTimeStock")) {
+            wsProduct.setRealTimeStock(entityProduct.getRealTimeStock());
+        }
 
         // Convert timestamp to string
-        if(entityProduct.getLastStockUpdate() != null) {
+        if(wants(fields, "lastStockUpdate") && entityProduct.getLastStockUpdate() != null) {
             wsProduct.setLastStockUpdate(entityProduct.getLastStockUpdate().toString());
         }
 
+        if (wants(fields, "approved")) {
+            wsProduct.setApproved(entityProduct.getApproved());
+        }
+        if (wants(fields, "active")) {
+            wsProduct.setActive(entityProduct.getActive());
+        }
+
         return wsProduct;
     }
-}
\ No newline at end of file
+
+    private static boolean wants(Set<String> fields, String field) {
+        return fields.isEmpty() || fields.contains(field);
+    }
+
+    // Reported to the client as a SOAP fault
+    private static void checkIdCount(Set<Long> ids) {
+        if (ids.size() > ProductService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + ProductService.MAX_PAGE_SIZE + " ids per request");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+-- Schema as previously created by ddl-auto=update. IF NOT EXISTS lets this run on databases
+-- that were created that way (they are baselined at version 0, see application.properties).
+
+CREATE TABLE IF NOT EXISTS products (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(1000),
+    price FLOAT(53) NOT NULL,
+    picture_url VARCHAR(500),
+    approved BIT NOT NULL,
+    active BIT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS stock (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    last_updated DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_stock_product_id UNIQUE (product_id),
+    CONSTRAINT fk_stock_product FOREIGN KEY (product_id) REFERENCES products (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS payments (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    status ENUM('PENDING','SUCCESS','FAILED') NOT NULL,
+    stripe_session_id VARCHAR(255),
+    timestamp DATETIME(6) NOT NULL,
+    quantity INTEGER NOT NULL,
+    currency VARCHAR(255) NOT NULL,
+    order_id VARCHAR(255) NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_payments_stripe_session_id UNIQUE (stripe_session_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS processed_events (
+    event_id VARCHAR(255) NOT NULL,
+    processed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (event_id),
+    INDEX idx_processed_events_processed_at (processed_at)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS webhook_inbox (
+    event_id VARCHAR(255) NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    session_id VARCHAR(255),
+    status ENUM('PENDING','DONE','DEAD') NOT NULL,
+    attempts INTEGER NOT NULL,
+    received_at DATETIME(6) NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    processed_at DATETIME(6),
+    last_error VARCHAR(1000),
+    PRIMARY KEY (event_id),
+    INDEX idx_webhook_inbox_status_next_attempt (status, next_attempt_at)
+) ENGINE=InnoDB;
@@ -0,0 +1,13 @@
+-- Backing table for the pooled-lo @TableGenerator ids of products, stock and payments.
+-- MySQL has no sequences; each row holds the next unallocated id of one table, seeded
+-- past the ids already handed out by AUTO_INCREMENT.
+
+CREATE TABLE id_generators (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val BIGINT,
+    PRIMARY KEY (sequence_name)
+) ENGINE=InnoDB;
+
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'products', COALESCE(MAX(id), 0) + 1 FROM products;
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'stock', COALESCE(MAX(id), 0) + 1 FROM stock;
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'payments', COALESCE(MAX(id), 0) + 1 FROM payments;
@@ -0,0 +1,20 @@
+-- Change versions for delta catalog sync (ProductService.getChangesSince): every write to
+-- a product or stock row stamps it with the next value of ChangeVersionClock, and hard
+-- deletes leave a tombstone. Existing rows start at version 1 so a first sync from 0
+-- returns the whole catalog.
+
+ALTER TABLE products ADD COLUMN change_version BIGINT NOT NULL DEFAULT 0;
+UPDATE products SET change_version = 1;
+CREATE INDEX idx_products_change_version ON products (change_version);
+
+ALTER TABLE stock ADD COLUMN change_version BIGINT NOT NULL DEFAULT 0;
+UPDATE stock SET change_version = 1;
+CREATE INDEX idx_stock_change_version ON stock (change_version);
+
+CREATE TABLE deleted_products (
+    product_id BIGINT NOT NULL,
+    change_version BIGINT NOT NULL,
+    deleted_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (product_id),
+    INDEX idx_deleted_products_change_version (change_version)
+) ENGINE=InnoDB;
@@ -0,0 +1,14 @@
+-- Reservation journal of the in-memory stock engine (stock.engine=memory). Each committed
+-- reservation has a row, written in the reserving transaction, until the flush that writes
+-- the reservation into stock deletes it. Counters loaded after a restart subtract the rows
+-- left over, so units sold before a crash are not sold again. Ids are UUIDs because H2,
+-- used by the tests, hands out duplicate AUTO_INCREMENT values under concurrent inserts.
+
+CREATE TABLE stock_reservations (
+    reservation_id CHAR(36) NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (reservation_id),
+    INDEX idx_stock_reservations_product_id (product_id)
+) ENGINE=InnoDB;
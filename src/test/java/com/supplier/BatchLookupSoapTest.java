@@ -0,0 +1,136 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import com.supplier.ws.GetProductsByIdsRequest;
+import com.supplier.ws.GetProductsByIdsResponse;
+import com.supplier.ws.GetStockLevelsRequest;
+import com.supplier.ws.GetStockLevelsResponse;
+import com.supplier.ws.StockLevel;
+import com.supplier.ws.SupplierEndpoint;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class BatchLookupSoapTest {
+
+    private static final int PRODUCTS = 50;
+
+    @Autowired
+    private SupplierEndpoint supplierEndpoint;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> ids = new ArrayList<>();
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Partner SKU " + i);
+            product.setPrice(1.0);
+            product.setAvailableQuantity(i);
+            products.add(product);
+        }
+        productService.createProducts(products).forEach(product -> ids.add(product.getId()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testGetProductsByIdsIsOneQuery() {
+        GetProductsByIdsRequest request = new GetProductsByIdsRequest();
+        List<Long> reversed = new ArrayList<>(ids);
+        Collections.reverse(reversed);
+        request.getIds().addAll(reversed);
+        request.getIds().add(-1L);
+        request.getIds().add(ids.get(0));
+        request.setIncludePictureData(false);
+
+        statistics.clear();
+        GetProductsByIdsResponse response = supplierEndpoint.getProductsByIds(request);
+        assertEquals(1, statistics.getPrepareStatementCount(), "Products and stock should be loaded in one query");
+
+        assertEquals(PRODUCTS, response.getProducts().size());
+        assertEquals(ids.get(PRODUCTS - 1), response.getProducts().get(0).getId(), "Products come back in request order");
+        assertEquals(PRODUCTS - 1, response.getProducts().get(0).getRealTimeStock());
+        assertEquals(List.of(-1L), response.getNotFoundIds());
+
+        // Known products are now served from the product cache
+        request.getIds().remove(-1L);
+        statistics.clear();
+        supplierEndpoint.getProductsByIds(request);
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testGetStockLevelsIsOneQuery() {
+        GetStockLevelsRequest request = new GetStockLevelsRequest();
+        request.getProductIds().addAll(ids);
+        request.getProductIds().add(-1L);
+
+        statistics.clear();
+        GetStockLevelsResponse response = supplierEndpoint.getStockLevels(request);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertEquals(PRODUCTS, response.getLevels().size());
+        StockLevel level = response.getLevels().get(7);
+        assertEquals(ids.get(7), level.getProductId());
+        assertEquals(7, level.getQuantity());
+        assertEquals(List.of(-1L), response.getNotFoundIds());
+    }
+
+    @Test
+    public void testSoapLookupsRejectTooManyIds() {
+        List<Long> tooMany = LongStream.rangeClosed(1, ProductService.MAX_PAGE_SIZE + 1).boxed().toList();
+
+        GetProductsByIdsRequest productsRequest = new GetProductsByIdsRequest();
+        productsRequest.getIds().addAll(tooMany);
+        assertThrows(IllegalArgumentException.class, () -> supplierEndpoint.getProductsByIds(productsRequest));
+
+        GetStockLevelsRequest stockRequest = new GetStockLevelsRequest();
+        stockRequest.getProductIds().addAll(tooMany);
+        assertThrows(IllegalArgumentException.class, () -> supplierEndpoint.getStockLevels(stockRequest));
+    }
+
+    @Test
+    public void testLargeServiceLookupsAreChunked() {
+        List<Long> lookup = new ArrayList<>(ids);
+        LongStream.rangeClosed(1, 2 * ProductService.MAX_PAGE_SIZE).forEach(i -> lookup.add(-i));
+
+        statistics.clear();
+        assertEquals(PRODUCTS, productService.getProductsByIds(lookup).size());
+        assertEquals(3, statistics.getPrepareStatementCount(), "One IN query per MAX_PAGE_SIZE ids");
+
+        statistics.clear();
+        assertEquals(PRODUCTS, productService.getAvailableStock(lookup).size());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
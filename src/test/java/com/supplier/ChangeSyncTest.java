@@ -0,0 +1,147 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.DeletedProductRepository;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ChangeSet;
+import com.supplier.service.ChangeVersionClock;
+import com.supplier.service.ProductService;
+import com.supplier.ws.GetChangesSinceRequest;
+import com.supplier.ws.GetChangesSinceResponse;
+import com.supplier.ws.SupplierEndpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ChangeSyncTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ChangeVersionClock changeVersionClock;
+
+    @Autowired
+    private SupplierEndpoint supplierEndpoint;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DeletedProductRepository deletedProductRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+        deletedProductRepository.deleteAll();
+    }
+
+    @Test
+    public void testChangesSinceWatermark() {
+        long start = changeVersionClock.getCommittedVersion();
+        Long first = createProduct("First", 5);
+        Long second = createProduct("Second", 6);
+        Long third = createProduct("Third", 7);
+
+        ChangeSet created = productService.getChangesSince(start, null);
+        assertEquals(List.of(first, second, third), ids(created));
+        assertTrue(created.getDeletedProductIds().isEmpty());
+        assertFalse(created.isHasMore());
+
+        productService.updateStock(first, 50);
+        productService.approveProduct(second);
+        productService.deleteProduct(third);
+
+        ChangeSet changed = productService.getChangesSince(created.getVersion(), null);
+        assertEquals(List.of(first, second), ids(changed));
+        assertEquals(50, changed.getProducts().get(0).getRealTimeStock());
+        assertTrue(changed.getProducts().get(1).getApproved());
+        assertEquals(List.of(third), changed.getDeletedProductIds());
+
+        ChangeSet unchanged = productService.getChangesSince(changed.getVersion(), null);
+        assertTrue(unchanged.getProducts().isEmpty());
+        assertEquals(changed.getVersion(), unchanged.getVersion());
+    }
+
+    @Test
+    public void testLimitedSyncPagesThroughEveryChange() {
+        long start = changeVersionClock.getCommittedVersion();
+        Set<Long> created = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            created.add(createProduct("Paged " + i, i));
+        }
+
+        Set<Long> synced = new HashSet<>();
+        long version = start;
+        int calls = 0;
+        ChangeSet changes;
+        do {
+            changes = productService.getChangesSince(version, 3);
+            assertTrue(changes.getProducts().size() <= 3);
+            changes.getProducts().forEach(product -> synced.add(product.getId()));
+            version = changes.getVersion();
+            calls++;
+        } while (changes.isHasMore());
+
+        assertEquals(created, synced);
+        assertTrue(calls > 1);
+    }
+
+    @Test
+    public void testUncommittedChangeHoldsBackWatermark() {
+        long start = changeVersionClock.getCommittedVersion();
+        Long[] product = new Long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            long pending = changeVersionClock.next();
+            // A transaction that started later commits first
+            CompletableFuture.runAsync(() -> product[0] = createProduct("Committed first", 1)).join();
+
+            ChangeSet changes = productService.getChangesSince(start, null);
+            assertEquals(pending - 1, changes.getVersion());
+            assertTrue(changes.getProducts().isEmpty(), "Changes after an uncommitted version must wait for it");
+        });
+
+        assertEquals(List.of(product[0]), ids(productService.getChangesSince(start, null)));
+    }
+
+    @Test
+    public void testSoapGetChangesSince() {
+        long start = changeVersionClock.getCommittedVersion();
+        Long id = createProduct("Soap sync", 3);
+
+        GetChangesSinceRequest request = new GetChangesSinceRequest();
+        request.setSinceVersion(start);
+        request.setIncludePictureData(false);
+        GetChangesSinceResponse response = supplierEndpoint.getChangesSince(request);
+
+        assertEquals(1, response.getProducts().size());
+        assertEquals(id, response.getProducts().get(0).getId());
+        assertFalse(response.isHasMore());
+        assertTrue(response.getVersion() > start);
+    }
+
+    private Long createProduct(String name, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(1.0);
+        product.setAvailableQuantity(quantity);
+        return productService.createProduct(product).getId();
+    }
+
+    private static List<Long> ids(ChangeSet changes) {
+        return changes.getProducts().stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,105 @@
+package com.supplier;
+
+import com.supplier.controller.PaymentController;
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import com.supplier.repository.PaymentRepository;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checkout executor limits as seen by clients: one gateway call at a time, one queued
+ * checkout, and a timeout far below the gateway latency.
+ */
+@SpringBootTest(properties = {
+        "payment.gateway=fake",
+        "payment.gateway.fake.min-latency-ms=1500",
+        "payment.gateway.fake.max-latency-ms=1500",
+        "checkout.executor.max-concurrency=1",
+        "checkout.executor.queue-capacity=1",
+        "checkout.executor.timeout-ms=300",
+        "spring.datasource.url=jdbc:h2:mem:supplier-backpressure;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+public class CheckoutBackpressureTest {
+
+    @Autowired
+    private PaymentController paymentController;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    public void tearDown() {
+        paymentRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testFullQueueIsRejectedAndSlowCheckoutsTimeOut() throws Exception {
+        Product product = new Product();
+        product.setName("Backpressure product");
+        product.setPrice(5.0);
+        product.setAvailableQuantity(10);
+        Long productId = productService.createProduct(product).getId();
+
+        CompletableFuture<ResponseEntity<Map<String, String>>> running = checkout(productId, "ORDER_RUNNING");
+        // Wait until the first checkout is inside the gateway, so the next one has to queue
+        waitForPayments(1);
+        CompletableFuture<ResponseEntity<Map<String, String>>> queued = checkout(productId, "ORDER_QUEUED");
+        CompletableFuture<ResponseEntity<Map<String, String>>> rejected = checkout(productId, "ORDER_REJECTED");
+
+        ResponseEntity<Map<String, String>> rejection = rejected.get(1, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection.getStatusCode());
+        assertEquals("1", rejection.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, running.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, queued.get(5, TimeUnit.SECONDS).getStatusCode());
+
+        // Let the gateway call finish; the queued checkout expired while waiting and is dropped
+        long deadline = System.currentTimeMillis() + 5000;
+        while (paymentRepository.findAll().stream().allMatch(p -> p.getStatus() == Payment.PaymentStatus.PENDING)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Gateway call did not finish");
+            Thread.sleep(50);
+        }
+        Thread.sleep(500);
+        List<Payment> payments = paymentRepository.findAll();
+        assertEquals(1, payments.size(), "Only the running checkout reached the payment service");
+        Payment timedOut = payments.get(0);
+        assertEquals("ORDER_RUNNING", timedOut.getOrderId());
+        // Its caller got a 504 and never saw the checkout URL, so the payment must not stay payable
+        assertNotNull(timedOut.getStripeSessionId());
+        assertEquals(Payment.PaymentStatus.FAILED, timedOut.getStatus());
+    }
+
+    private CompletableFuture<ResponseEntity<Map<String, String>>> checkout(Long productId, String orderId) {
+        return paymentController.createCheckoutSession(Map.of("productId", productId, "quantity", 1, "orderId", orderId));
+    }
+
+    private void waitForPayments(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (paymentRepository.count() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "Checkout did not start");
+            Thread.sleep(10);
+        }
+    }
+}
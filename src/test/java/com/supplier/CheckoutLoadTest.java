@@ -0,0 +1,133 @@
+package com.supplier;
+
+import com.supplier.controller.PaymentController;
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import com.supplier.repository.PaymentRepository;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.CheckoutExecutor;
+import com.supplier.service.CheckoutResult;
+import com.supplier.service.FakePaymentGateway;
+import com.supplier.service.ProductService;
+import com.supplier.service.WebhookInboxWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sustained checkout + webhook load against the fake gateway. More checkouts are inside the
+ * gateway at once than the pool has connections, which only works if no connection is held
+ * across the gateway call, and every successful checkout reduces stock exactly once.
+ */
+@SpringBootTest(properties = {
+        "payment.gateway=fake",
+        "payment.gateway.fake.min-latency-ms=100",
+        "payment.gateway.fake.max-latency-ms=200",
+        "payment.gateway.fake.error-rate=0.1",
+        "checkout.executor.max-concurrency=16",
+        "checkout.executor.queue-capacity=1000",
+        "checkout.executor.timeout-ms=60000",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        // Own database so concurrent inserts do not meet schemas of other cached test contexts
+        "spring.datasource.url=jdbc:h2:mem:supplier-load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+public class CheckoutLoadTest {
+
+    private static final int POOL_SIZE = 4;
+    private static final int CHECKOUTS = 200;
+    private static final int INITIAL_STOCK = 1000;
+
+    @Autowired
+    private CheckoutExecutor checkoutExecutor;
+
+    @Autowired
+    private FakePaymentGateway gateway;
+
+    @Autowired
+    private PaymentController paymentController;
+
+    @Autowired
+    private WebhookInboxWorker webhookInboxWorker;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    public void tearDown() {
+        paymentRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testCheckoutAndWebhookLoad() throws Exception {
+        Product product = new Product();
+        product.setName("Load product");
+        product.setDescription("Checkout load test product");
+        product.setPrice(3.0);
+        product.setAvailableQuantity(INITIAL_STOCK);
+        Long productId = productService.createProduct(product).getId();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<CheckoutResult>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            checkouts.add(checkoutExecutor.submit(productId, 1, null, "EUR", "ORDER_LOAD_" + i));
+        }
+        int failed = 0;
+        for (CompletableFuture<CheckoutResult> checkout : checkouts) {
+            try {
+                checkout.get(120, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        long checkoutMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<String> sessionIds = paymentRepository.findAll().stream()
+                .map(Payment::getStripeSessionId)
+                .filter(Objects::nonNull)
+                .toList();
+        ExecutorService webhooks = Executors.newFixedThreadPool(8);
+        List<Future<?>> deliveries = new ArrayList<>();
+        for (String sessionId : sessionIds) {
+            String payload = gateway.completedEvent(sessionId);
+            deliveries.add(webhooks.submit(() -> paymentController.handleStripeWebhook(payload, gateway.sign(payload))));
+        }
+        for (Future<?> delivery : deliveries) {
+            delivery.get(120, TimeUnit.SECONDS);
+        }
+        webhooks.shutdown();
+        webhookInboxWorker.drain();
+
+        System.out.printf("Checkout load: %d checkouts in %d ms, %d failed, peak %d in gateway on %d connections%n",
+                CHECKOUTS, checkoutMs, failed, gateway.getPeakInFlight(), POOL_SIZE);
+
+        assertTrue(gateway.getPeakInFlight() > POOL_SIZE,
+                "Checkouts waiting on the gateway must not hold pooled connections");
+        assertTrue(failed > 0, "Fake gateway error rate should produce some failures");
+        assertEquals(CHECKOUTS - failed, sessionIds.size());
+
+        List<Payment> payments = paymentRepository.findAll();
+        assertEquals(CHECKOUTS, payments.size());
+        assertEquals(failed, payments.stream().filter(p -> p.getStatus() == Payment.PaymentStatus.FAILED).count());
+        assertEquals(sessionIds.size(), payments.stream().filter(p -> p.getStatus() == Payment.PaymentStatus.SUCCESS).count());
+        assertEquals(INITIAL_STOCK - sessionIds.size(), productService.getAvailableStock(productId).orElseThrow());
+    }
+}
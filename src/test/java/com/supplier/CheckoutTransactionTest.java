@@ -0,0 +1,114 @@
+package com.supplier;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.checkout.Session;
+import com.stripe.param.checkout.SessionCreateParams;
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import com.supplier.repository.PaymentRepository;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.CheckoutResult;
+import com.supplier.service.PaymentGatewayException;
+import com.supplier.service.PaymentService;
+import com.supplier.service.ProductService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mockStatic;
+
+@SpringBootTest
+public class CheckoutTransactionTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        Product product = new Product();
+        product.setName("Checkout product");
+        product.setDescription("Checkout transaction test product");
+        product.setPrice(12.5);
+        product.setAvailableQuantity(10);
+        productId = productService.createProduct(product).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        paymentRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testStripeIsCalledWithoutTransactionOrConnection() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        try (MockedStatic<Session> stripe = mockStatic(Session.class)) {
+            stripe.when(() -> Session.create(any(SessionCreateParams.class))).thenAnswer(invocation -> {
+                assertFalse(TransactionSynchronizationManager.isActualTransactionActive(),
+                        "Stripe must not be called inside a transaction");
+                assertEquals(0, hikari.getHikariPoolMXBean().getActiveConnections(),
+                        "No pooled connection may be held during the Stripe call");
+                List<Payment> pending = paymentRepository.findAll();
+                assertEquals(Payment.PaymentStatus.PENDING, pending.get(0).getStatus(), "PENDING payment is saved first");
+                return session("cs_test_checkout", "https://checkout.stripe.test/cs_test_checkout");
+            });
+
+            CheckoutResult result = paymentService.createCheckoutSession(productId, 2, null, "EUR", "ORDER_TX");
+            assertEquals("https://checkout.stripe.test/cs_test_checkout", result.getUrl());
+            assertEquals("cs_test_checkout", result.getPayment().getStripeSessionId());
+            assertNotNull(result.getPayment().getId());
+        }
+
+        Payment payment = paymentRepository.findByStripeSessionId("cs_test_checkout").orElseThrow();
+        assertEquals(Payment.PaymentStatus.PENDING, payment.getStatus());
+        assertEquals(25.0, payment.getAmount());
+    }
+
+    @Test
+    public void testStripeFailureMarksPaymentFailed() {
+        try (MockedStatic<Session> stripe = mockStatic(Session.class)) {
+            stripe.when(() -> Session.create(any(SessionCreateParams.class)))
+                    .thenThrow(new ApiConnectionException("Stripe unreachable"));
+
+            PaymentGatewayException error = assertThrows(PaymentGatewayException.class,
+                    () -> paymentService.createCheckoutSession(productId, 1, null, "EUR", "ORDER_FAIL"));
+            assertInstanceOf(ApiConnectionException.class, error.getCause());
+        }
+
+        List<Payment> payments = paymentRepository.findAll();
+        assertEquals(1, payments.size());
+        assertEquals(Payment.PaymentStatus.FAILED, payments.get(0).getStatus());
+        assertNull(payments.get(0).getStripeSessionId());
+    }
+
+    private static Session session(String id, String url) {
+        Session session = new Session();
+        session.setId(id);
+        session.setUrl(url);
+        return session;
+    }
+}
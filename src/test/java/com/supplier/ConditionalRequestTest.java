@@ -0,0 +1,138 @@
+package com.supplier;
+
+import com.supplier.controller.ProductController;
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ConditionalRequestTest {
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Product product = new Product();
+        product.setName("Polled SKU");
+        product.setPrice(3.0);
+        product.setAvailableQuantity(10);
+        productId = productService.createProduct(product).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testProductNotModified() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertNotNull(productController.getProductById(productId, request(first, null, null)));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertNull(first.getHeader(HttpHeaders.LAST_MODIFIED), "Revalidation goes through the ETag only");
+
+        MockHttpServletResponse unchanged = new MockHttpServletResponse();
+        statistics.clear();
+        assertNull(productController.getProductById(productId, request(unchanged, etag, null)));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), unchanged.getStatus());
+        assertEquals(0, statistics.getPrepareStatementCount(), "A cached product is revalidated without a query");
+
+        productService.updateStock(productId, 4);
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertEquals(4, productController.getProductById(productId, request(changed, etag, null)).getBody().getRealTimeStock());
+        assertNotEquals(etag, changed.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testProductOnlyChangeIsNotHiddenByIfModifiedSince() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertFalse(productController.getProductById(productId, request(first, null, null)).getBody().getApproved());
+
+        productService.approveProduct(productId);
+
+        // A client that only sends If-Modified-Since must get the approved product, not a 304
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        String now = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+        assertTrue(productController.getProductById(productId, request(changed, null, now)).getBody().getApproved());
+        assertEquals(HttpStatus.OK.value(), changed.getStatus());
+    }
+
+    @Test
+    public void testCatalogNotModifiedWithoutQuery() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertNotNull(productController.getAllProducts(null, null, request(first, null, null)));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        MockHttpServletResponse unchanged = new MockHttpServletResponse();
+        statistics.clear();
+        assertNull(productController.getAllProducts(null, null, request(unchanged, etag, null)));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), unchanged.getStatus());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        productService.approveProduct(productId);
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertNotNull(productController.getAllProducts(null, null, request(changed, etag, null)));
+        assertNotEquals(etag, changed.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testStockNotModified() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertNotNull(productController.getStock(productId, request(first, null, null)));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse unchanged = new MockHttpServletResponse();
+        assertNull(productController.getStock(productId, request(unchanged, etag, null)));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), unchanged.getStatus());
+
+        productService.reduceStock(productId, 1);
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertEquals(9, productController.getStock(productId, request(changed, etag, null)).getBody().get("quantity"));
+    }
+
+    private static ServletWebRequest request(MockHttpServletResponse response, String ifNoneMatch, String ifModifiedSince) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
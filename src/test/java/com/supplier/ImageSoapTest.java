@@ -1,14 +1,32 @@
 package com.supplier;
 
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
 import com.supplier.service.ImageService;
+import com.supplier.service.ProductService;
+import jakarta.activation.DataHandler;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.ws.context.DefaultMessageContext;
+import org.springframework.ws.context.MessageContext;
+import org.springframework.ws.soap.saaj.SaajSoapMessage;
+import org.springframework.ws.soap.saaj.SaajSoapMessageFactory;
+import org.springframework.ws.soap.server.SoapMessageDispatcher;
 
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,9 +34,51 @@ import static org.junit.jupiter.api.Assertions.*;
 @TestPropertySource(properties = "upload.dir=uploads/")
 public class ImageSoapTest {
 
+    private static final String XOP_INCLUDE = "http://www.w3.org/2004/08/xop/include";
+
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testMtomClientGetsImageAsAttachment() throws Exception {
+        Long id = createProductWithImage();
+
+        SaajSoapMessage response = dispatchGetProductsByIds(id, true);
+
+        assertTrue(response.isXopPackage(), "Response to an XOP request should be an XOP package");
+        assertTrue(response.getAttachments().hasNext(), "Image should be sent as an attachment");
+        String xml = write(response);
+        assertTrue(xml.contains(XOP_INCLUDE), "pictureData should reference the attachment with xop:Include");
+    }
+
+    @Test
+    public void testPlainSoapClientGetsInlineBase64() throws Exception {
+        Long id = createProductWithImage();
+
+        SaajSoapMessage response = dispatchGetProductsByIds(id, false);
+
+        assertFalse(response.isXopPackage());
+        assertFalse(response.getAttachments().hasNext());
+        String xml = write(response);
+        assertFalse(xml.contains(XOP_INCLUDE));
+        assertTrue(xml.matches("(?s).*<(\\w+:)?pictureData>[A-Za-z0-9+/=\\s]{100,}</(\\w+:)?pictureData>.*"),
+                "pictureData should be inline base64");
+    }
+
     @Test
     public void testImageToBase64Conversion() {
         // Test with an actual image file from uploads directory
@@ -50,6 +110,28 @@ public class ImageSoapTest {
         }
     }
 
+    @Test
+    public void testImageDataHandler() throws Exception {
+        String testImagePath = "/uploads/f0acd485-24c8-466d-8a36-4893a13c77df_asus-e410m-intel-celeron-n4020-4gb-128gb-bleu-90nb0q11-m15070.jpg";
+
+        Path filePath = Paths.get("uploads", "f0acd485-24c8-466d-8a36-4893a13c77df_asus-e410m-intel-celeron-n4020-4gb-128gb-bleu-90nb0q11-m15070.jpg");
+        if (Files.exists(filePath)) {
+            DataHandler dataHandler = imageService.getImageDataHandler(testImagePath);
+            assertNotNull(dataHandler, "Data handler should not be null");
+            assertEquals("image/jpeg", dataHandler.getContentType(), "Should expose the image MIME type");
+
+            // The file is only read when the handler is consumed
+            try (InputStream in = dataHandler.getInputStream()) {
+                assertEquals(Files.size(filePath), in.readAllBytes().length, "Should stream the whole file");
+            }
+        } else {
+            System.out.println("⚠️  Test image not found, skipping test");
+        }
+
+        assertNull(imageService.getImageDataHandler("https://images.unsplash.com/photo-1560472354-b33ff0c44a43?w=400"),
+                "External URL should return null data handler");
+    }
+
     @Test
     public void testExternalUrlHandling() {
         // Test with external URL - should return null
@@ -66,5 +148,43 @@ public class ImageSoapTest {
         
         System.out.println("✅ External URL handling test passed!");
     }
-}
 
+    private SaajSoapMessage dispatchGetProductsByIds(Long id, boolean xop) throws Exception {
+        SaajSoapMessageFactory messageFactory = new SaajSoapMessageFactory();
+        messageFactory.afterPropertiesSet();
+        SaajSoapMessage request = messageFactory.createWebServiceMessage();
+        String payload = "<ws:getProductsByIdsRequest xmlns:ws=\"http://supplier.com/ws\"><ws:ids>" + id
+                + "</ws:ids></ws:getProductsByIdsRequest>";
+        TransformerFactory.newInstance().newTransformer()
+                .transform(new StreamSource(new StringReader(payload)), request.getPayloadResult());
+        if (xop) {
+            // What an MTOM-enabled client sends: a multipart/related XOP package
+            request.convertToXopPackage();
+        }
+
+        SoapMessageDispatcher dispatcher = new SoapMessageDispatcher();
+        dispatcher.setApplicationContext(applicationContext);
+        MessageContext context = new DefaultMessageContext(request, messageFactory);
+        dispatcher.receive(context);
+        return (SaajSoapMessage) context.getResponse();
+    }
+
+    private Long createProductWithImage() throws Exception {
+        String pictureUrl;
+        try (Stream<Path> images = Files.list(Paths.get("uploads"))) {
+            pictureUrl = "/uploads/" + images.findFirst().orElseThrow().getFileName();
+        }
+        Product product = new Product();
+        product.setName("Imaged SKU");
+        product.setPrice(1.0);
+        product.setAvailableQuantity(1);
+        product.setPictureUrl(pictureUrl);
+        return productService.createProduct(product).getId();
+    }
+
+    private static String write(SaajSoapMessage message) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return out.toString(StandardCharsets.ISO_8859_1);
+    }
+}
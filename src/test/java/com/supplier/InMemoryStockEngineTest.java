@@ -0,0 +1,233 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.repository.StockRepository;
+import com.supplier.service.ChangeVersionClock;
+import com.supplier.service.InMemoryStockEngine;
+import com.supplier.service.ProductCache;
+import com.supplier.service.ProductService;
+import com.supplier.service.StockChangeBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"stock.engine=memory", "stock.engine.flush-interval-ms=600000"})
+public class InMemoryStockEngineTest {
+
+    private static final int INITIAL_STOCK = 200;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private InMemoryStockEngine stockEngine;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ChangeVersionClock changeVersionClock;
+
+    @Autowired
+    private StockChangeBus stockChangeBus;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @AfterEach
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("DELETE FROM stock_reservations"));
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testReservationsNeverOversellAndFlushToDatabase() throws Exception {
+        Long productId = createProduct(INITIAL_STOCK);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (productService.reduceStock(productId, 1)) {
+                        successes.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(INITIAL_STOCK, successes.get(), "Exactly the available stock should be sold");
+        assertEquals(0, productService.getAvailableStock(productId).orElseThrow());
+
+        // Nothing is written until the flush
+        assertEquals(INITIAL_STOCK, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+        stockEngine.flush();
+        assertEquals(0, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getAvailableQuantity());
+    }
+
+    @Test
+    public void testAbsoluteUpdateReplacesCounter() {
+        Long productId = createProduct(10);
+        assertTrue(productService.reduceStock(productId, 4));
+
+        productService.updateStock(productId, 25);
+        assertEquals(25, productService.getAvailableStock(productId).orElseThrow());
+        assertFalse(productService.reduceStock(productId, 26));
+        assertTrue(productService.reduceStock(productId, 25));
+
+        stockEngine.flush();
+        assertEquals(0, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    public void testRolledBackReservationGivesUnitsBack() {
+        Long productId = createProduct(10);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(productService.reduceStock(productId, 4));
+            assertEquals(6, productService.getAvailableStock(productId).orElseThrow());
+            // e.g. the payment update after the reservation failed
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, productService.getAvailableStock(productId).orElseThrow());
+        assertEquals(0, journalRows(productId), "The journal row rolls back with the reservation");
+        assertTrue(productService.reduceStock(productId, 10), "A retry can take the same units again");
+        stockEngine.flush();
+        assertEquals(0, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    public void testRolledBackAbsoluteUpdateIsNotApplied() {
+        Long productId = createProduct(10);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.updateStock(productId, 50);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, productService.getAvailableStock(productId).orElseThrow());
+        stockEngine.flush();
+        assertEquals(10, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    public void testFlushEvictsCachedProduct() {
+        Long productId = createProduct(10);
+        assertTrue(productService.reduceStock(productId, 3));
+        // Cached from the stock row, which still holds the pre-flush level
+        assertEquals(10, productService.getProductById(productId).orElseThrow().getRealTimeStock());
+
+        stockEngine.flush();
+
+        assertEquals(7, productService.getProductById(productId).orElseThrow().getRealTimeStock());
+    }
+
+    @Test
+    public void testCountersRecoverFromDatabase() {
+        Long productId = createProduct(10);
+
+        // Simulates a level written before this engine instance started
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("UPDATE stock SET quantity = 7 WHERE product_id = ?", productId));
+        assertEquals(7, productService.getAvailableStock(productId).orElseThrow());
+        assertTrue(productService.getAvailableStock(-1L).isEmpty(), "Unknown products have no stock");
+        assertFalse(productService.reduceStock(-1L, 1));
+    }
+
+    @Test
+    public void testCommittedReservationsSurviveACrash() {
+        Long productId = createProduct(10);
+        assertTrue(productService.reduceStock(productId, 3));
+        assertEquals(10, stockRepository.findByProductId(productId).orElseThrow().getQuantity(), "Not flushed yet");
+        assertEquals(1, journalRows(productId));
+
+        // A new engine instance sees what a restarted process would: the stock row and the journal
+        InMemoryStockEngine restarted = new InMemoryStockEngine(stockRepository, jdbcTemplate, transactionManager,
+                changeVersionClock, stockChangeBus, productCache);
+        assertEquals(7, restarted.getAvailable(productId).orElseThrow(), "Units sold before the crash are not sold again");
+        assertFalse(restarted.reserve(productId, 8));
+
+        restarted.flush();
+        assertEquals(7, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+        assertEquals(0, journalRows(productId));
+    }
+
+    @Test
+    public void testFlushClearsJournal() {
+        Long productId = createProduct(10);
+        assertTrue(productService.reduceStock(productId, 2));
+        assertTrue(productService.reduceStock(productId, 3));
+        assertEquals(2, journalRows(productId));
+
+        stockEngine.flush();
+
+        assertEquals(5, stockRepository.findByProductId(productId).orElseThrow().getQuantity());
+        assertEquals(0, journalRows(productId));
+    }
+
+    @Test
+    public void testDeletedProductCannotBeReserved() {
+        Long productId = createProduct(10);
+        assertTrue(productService.reduceStock(productId, 1));
+
+        assertTrue(productService.deleteProduct(productId));
+
+        assertFalse(productService.reduceStock(productId, 1), "The counter goes with the product");
+        assertTrue(productService.getAvailableStock(productId).isEmpty());
+        assertEquals(0, journalRows(productId));
+    }
+
+    private int journalRows(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservations WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private Long createProduct(int quantity) {
+        Product product = new Product();
+        product.setName("Flash sale SKU");
+        product.setDescription("In-memory stock engine test product");
+        product.setPrice(10.0);
+        product.setAvailableQuantity(quantity);
+        return productService.createProduct(product).getId();
+    }
+}
@@ -0,0 +1,130 @@
+package com.supplier;
+
+import com.supplier.entity.Payment;
+import com.supplier.entity.WebhookInboxEntry;
+import com.supplier.repository.PaymentRepository;
+import com.supplier.repository.WebhookInboxRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency of every payment access path on a large payments table, plus a check that each
+ * one is served by an index. Slow, so only runs with -Dbenchmark=true
+ * (row count with -Dbenchmark.rows, default 1,000,000).
+ * <p>
+ * By default this runs on in-memory H2, whose planner and latencies say nothing about
+ * MySQL. For production numbers point it at a scratch MySQL schema with
+ * -Dbenchmark.url=jdbc:mysql://... -Dbenchmark.driver=com.mysql.cj.jdbc.Driver
+ * -Dbenchmark.username=... -Dbenchmark.password=...
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${benchmark.url:jdbc:h2:mem:supplier-benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.driverClassName=${benchmark.driver:org.h2.Driver}",
+        "spring.datasource.username=${benchmark.username:sa}",
+        "spring.datasource.password=${benchmark.password:}"
+})
+public class PaymentFinderBenchmarkTest {
+
+    private static final int LOOKUPS = 2000;
+    private static final int INSERT_BATCH = 5000;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private WebhookInboxRepository webhookInboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void benchmarkPaymentFinders() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        long start = System.nanoTime();
+        insertPayments(rows);
+        System.out.printf("Inserted %d payments into %s in %d ms%n", rows, database, (System.nanoTime() - start) / 1_000_000);
+        try {
+            measureFinders(rows);
+        } finally {
+            // Leave a MySQL schema as it was
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.update("DELETE FROM payments WHERE stripe_session_id LIKE 'cs_bench_%'"));
+        }
+    }
+
+    private void measureFinders(int rows) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        measure("findByStripeSessionId", i ->
+                assertTrue(paymentRepository.findByStripeSessionId("cs_bench_" + random.nextInt(rows)).isPresent()));
+        measure("findById", i -> paymentRepository.findById((long) random.nextInt(1, rows)));
+        measure("inbox findDue", i -> webhookInboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                WebhookInboxEntry.Status.PENDING, LocalDateTime.now(), Limit.of(50)));
+
+        assertUsesIndex("SELECT * FROM payments WHERE stripe_session_id = 'cs_bench_1'", "uk_payments_stripe_session_id");
+        assertUsesIndex("SELECT id FROM products WHERE change_version > 10 ORDER BY change_version LIMIT 501",
+                "idx_products_change_version");
+        assertUsesIndex("SELECT product_id FROM stock WHERE change_version > 10 ORDER BY change_version LIMIT 501",
+                "idx_stock_change_version");
+        assertUsesIndex("SELECT * FROM webhook_inbox WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP "
+                + "ORDER BY next_attempt_at LIMIT 50", "idx_webhook_inbox_status_next_attempt");
+    }
+
+    private void insertPayments(int rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < rows; i++) {
+            // Two payments per order id, spread over 1000 products
+            batch.add(new Object[]{(long) (i % 1000), 10.0, Payment.PaymentStatus.SUCCESS.name(), "cs_bench_" + i,
+                    now, 1, "EUR", "ORDER_BENCH_" + (i / 2), now});
+            if (batch.size() == INSERT_BATCH || i == rows - 1) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        "INSERT INTO payments (product_id, amount, status, stripe_session_id, timestamp, "
+                        + "quantity, currency, order_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch));
+                batch.clear();
+            }
+        }
+    }
+
+    private void measure(String finder, IntConsumer lookup) {
+        for (int i = 0; i < LOOKUPS / 10; i++) {
+            lookup.accept(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup.accept(i);
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / LOOKUPS;
+        System.out.printf("%-24s %10.1f us/lookup%n", finder, micros);
+    }
+
+    // H2 returns the plan as text, MySQL one row per table with the chosen index in "key"
+    private void assertUsesIndex(String sql, String index) {
+        String plan = jdbcTemplate.queryForList("EXPLAIN " + sql).stream()
+                .map(row -> String.valueOf(row.containsKey("key") ? row.get("key") : row.values()))
+                .collect(Collectors.joining("\n"));
+        assertTrue(plan.contains(index), "Expected " + index + " in plan:\n" + plan);
+    }
+}
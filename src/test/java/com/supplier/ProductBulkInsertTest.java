@@ -0,0 +1,65 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ProductBulkInsertTest {
+
+    private static final int PRODUCTS = 200;
+    private static final int BATCH_SIZE = 40; // hibernate.jdbc.batch_size
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testBulkCreateInsertsInJdbcBatches() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Bulk product " + i);
+            product.setPrice(1.0 + i);
+            product.setAvailableQuantity(i);
+            products.add(product);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        productService.createProducts(products);
+
+        assertEquals(2L * PRODUCTS, statistics.getEntityInsertCount());
+        // Batched inserts reuse one prepared statement per table (kept apart by order_inserts);
+        // unbatched, or with IDENTITY ids, every row is its own statement
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("Bulk insert of " + PRODUCTS + " products: " + statements + " statement(s)");
+        assertTrue(statements <= 2L * PRODUCTS / BATCH_SIZE, "Expected batched inserts, got " + statements + " statements");
+
+        assertEquals(PRODUCTS, productRepository.count());
+        Product last = productRepository.findWithStockById(products.get(PRODUCTS - 1).getId()).orElseThrow();
+        assertEquals(PRODUCTS - 1, last.getRealTimeStock());
+    }
+}
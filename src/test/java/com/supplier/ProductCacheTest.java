@@ -0,0 +1,72 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ProductCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        Product product = new Product();
+        product.setName("Cached SKU");
+        product.setPrice(1.0);
+        product.setAvailableQuantity(10);
+        productId = productService.createProduct(product).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testReadBeforeCommitIsNotServedAfterCommit() {
+        assertEquals(10, stockSeenByAnotherThread());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.updateStock(productId, 99);
+            // A concurrent reader re-caches the committed (old) row while the update is still open
+            assertEquals(10, stockSeenByAnotherThread());
+        });
+
+        assertEquals(99, stockSeenByAnotherThread(), "The entry cached before commit must be evicted after commit");
+    }
+
+    @Test
+    public void testRolledBackChangeLeavesCacheConsistent() {
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.updateStock(productId, 99);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, stockSeenByAnotherThread());
+    }
+
+    private int stockSeenByAnotherThread() {
+        return CompletableFuture.supplyAsync(() -> productService.getProductById(productId).orElseThrow().getRealTimeStock())
+                .join();
+    }
+}
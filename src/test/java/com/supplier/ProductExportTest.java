@@ -0,0 +1,68 @@
+package com.supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ProductExportTest {
+
+    private static final int PRODUCTS = 1200;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testExportFlushesInBlocksNotPerProduct() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Exported SKU " + i);
+            product.setPrice(1.0);
+            product.setAvailableQuantity(i);
+            products.add(product);
+        }
+        productService.createProducts(products);
+
+        FlushCountingStream out = new FlushCountingStream();
+        productService.exportProducts(out);
+
+        JsonNode exported = objectMapper.readTree(out.toByteArray());
+        assertEquals(PRODUCTS, exported.size());
+        assertEquals(PRODUCTS - 1, exported.get(PRODUCTS - 1).get("realTimeStock").asInt());
+        // One flush per 500 rows plus the final one, instead of one per product
+        assertTrue(out.flushes <= PRODUCTS / 500 + 1, "Flushed " + out.flushes + " times");
+    }
+
+    private static class FlushCountingStream extends ByteArrayOutputStream {
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
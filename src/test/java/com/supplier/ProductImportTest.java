@@ -0,0 +1,100 @@
+package com.supplier;
+
+import com.supplier.controller.ProductController;
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ImportReport;
+import com.supplier.service.ProductImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "product.import.chunk-size=4")
+public class ProductImportTest {
+
+    @Autowired
+    private ProductImporter productImporter;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testCsvImportSavesValidRowsAndReportsInvalidOnes() throws Exception {
+        StringBuilder csv = new StringBuilder("name,description,price,availableQuantity\n");
+        for (int i = 0; i < 9; i++) {
+            csv.append("SKU ").append(i).append(",\"Size M, \"\"blue\"\"\",").append(i + 0.5).append(',').append(i).append('\n');
+        }
+        csv.append(",No name,1.0,1\n");          // line 11
+        csv.append("Bad price,,abc,1\n");        // line 12
+        csv.append("\n");
+        csv.append("Negative,,1.0,-3\n");        // line 14
+        csv.append("Last,,2.0,20\n");
+
+        ImportReport report = productImporter.importProducts(stream(csv.toString()), ProductImporter.Format.CSV);
+
+        assertEquals(10, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(List.of(11L, 12L, 14L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertEquals("name is required", report.getErrors().get(0).getMessage());
+
+        List<Product> products = productRepository.findAllWithStock();
+        products.sort(Comparator.comparing(Product::getId));
+        assertEquals(10, products.size());
+        assertEquals("Size M, \"blue\"", products.get(0).getDescription());
+        assertEquals(8, products.get(8).getRealTimeStock());
+        assertEquals("Last", products.get(9).getName());
+        assertEquals(20, products.get(9).getRealTimeStock());
+        assertFalse(products.get(9).getApproved(), "Imported products still need approval");
+    }
+
+    @Test
+    public void testNdjsonImportThroughController() throws Exception {
+        String ndjson = """
+                {"name":"Json 1","price":3.5,"availableQuantity":7,"pictureUrl":"/uploads/a.png"}
+                {"name":"Json 2","price":"4","availableQuantity":1}
+                {"name":"Broken",
+                {"name":"No stock","price":1.0}
+                """;
+
+        ResponseEntity<?> response = productController.importProducts(MediaType.parseMediaType("application/x-ndjson"), stream(ndjson));
+
+        ImportReport report = (ImportReport) response.getBody();
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals("availableQuantity is required", report.getErrors().get(1).getMessage());
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    public void testCsvWithoutRequiredColumnIsRejected() throws Exception {
+        ResponseEntity<?> response = productController.importProducts(MediaType.parseMediaType("text/csv"),
+                stream("name,price\nOnly,1.0\n"));
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals(0, productRepository.count());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,153 @@
+package com.supplier;
+
+import com.supplier.controller.ProductController;
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductPage;
+import com.supplier.service.ProductService;
+import com.supplier.ws.GetAllProductsRequest;
+import com.supplier.ws.GetAllProductsResponse;
+import com.supplier.ws.SupplierEndpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ProductPagingTest {
+
+    private static final int PRODUCTS = 5;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private SupplierEndpoint supplierEndpoint;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Paged SKU " + i);
+            product.setPrice(1.0);
+            product.setAvailableQuantity(i);
+            products.add(product);
+        }
+        productService.createProducts(products).forEach(product -> ids.add(product.getId()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testPagesCoverEveryProductInIdOrder() {
+        List<Long> seen = new ArrayList<>();
+        String pageToken = null;
+        int pages = 0;
+        do {
+            ProductPage page = productService.getProductPage(pageToken, 2);
+            assertTrue(page.getProducts().size() <= 2);
+            page.getProducts().forEach(product -> seen.add(product.getId()));
+            pageToken = page.getNextPageToken();
+            pages++;
+        } while (pageToken != null);
+
+        assertEquals(ids, seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    public void testPageSizeBoundary() {
+        // Exactly the remaining rows: the extra row fetched finds nothing, so no token
+        ProductPage all = productService.getProductPage(null, PRODUCTS);
+        assertEquals(PRODUCTS, all.getProducts().size());
+        assertNull(all.getNextPageToken());
+
+        ProductPage allButOne = productService.getProductPage(null, PRODUCTS - 1);
+        assertEquals(PRODUCTS - 1, allButOne.getProducts().size());
+        assertNotNull(allButOne.getNextPageToken());
+
+        ProductPage last = productService.getProductPage(allButOne.getNextPageToken(), PRODUCTS - 1);
+        assertEquals(List.of(ids.get(PRODUCTS - 1)), last.getProducts().stream().map(Product::getId).toList());
+        assertNull(last.getNextPageToken());
+    }
+
+    @Test
+    public void testPageTokenIsOpaqueKeyset() {
+        String token = productService.getProductPage(null, 2).getNextPageToken();
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        assertEquals("after:" + ids.get(1), decoded);
+
+        // A token keeps working when rows before it are deleted
+        productRepository.deleteById(ids.get(0));
+        assertEquals(ids.get(2), productService.getProductPage(token, 2).getProducts().get(0).getId());
+    }
+
+    @Test
+    public void testInvalidPageTokenIsRejected() {
+        String notKeyset = Base64.getUrlEncoder().encodeToString("before:1".getBytes(StandardCharsets.UTF_8));
+        for (String token : List.of("not base64!", notKeyset,
+                Base64.getUrlEncoder().encodeToString("after:x".getBytes(StandardCharsets.UTF_8)))) {
+            assertThrows(IllegalArgumentException.class, () -> productService.getProductPage(token, 2), token);
+        }
+
+        ResponseEntity<List<Product>> response = productController.getAllProducts("not base64!", null, webRequest());
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testRestNextPageTokenHeader() {
+        ResponseEntity<List<Product>> first = productController.getAllProducts(null, 3, webRequest());
+        assertEquals(3, first.getBody().size());
+        String token = first.getHeaders().getFirst(ProductController.NEXT_PAGE_TOKEN_HEADER);
+        assertNotNull(token);
+
+        ResponseEntity<List<Product>> second = productController.getAllProducts(token, 3, webRequest());
+        assertEquals(List.of(ids.get(3), ids.get(4)), second.getBody().stream().map(Product::getId).toList());
+        assertFalse(second.getHeaders().containsKey(ProductController.NEXT_PAGE_TOKEN_HEADER));
+    }
+
+    @Test
+    public void testSoapNextPageToken() {
+        GetAllProductsRequest request = new GetAllProductsRequest();
+        request.setIncludePictureData(false);
+        request.setPageSize(4);
+        GetAllProductsResponse first = supplierEndpoint.getAllProducts(request);
+        assertEquals(4, first.getProducts().size());
+        assertNotNull(first.getNextPageToken());
+
+        request.setPageToken(first.getNextPageToken());
+        GetAllProductsResponse second = supplierEndpoint.getAllProducts(request);
+        assertEquals(1, second.getProducts().size());
+        assertEquals(ids.get(4), second.getProducts().get(0).getId());
+        assertNull(second.getNextPageToken());
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/products"), new MockHttpServletResponse());
+    }
+}
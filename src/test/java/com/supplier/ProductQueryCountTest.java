@@ -0,0 +1,96 @@
+package com.supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ProductQueryCountTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        createProducts(3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testListingStatementCountIsConstant() throws Exception {
+        assertConstantStatementCount("getAllProducts", productService::getAllProducts);
+        assertConstantStatementCount("getAllProductsWithStock", productService::getAllProductsWithStock);
+        assertConstantStatementCount("getPendingApprovalProducts", productService::getPendingApprovalProducts);
+        assertConstantStatementCount("getProductPage", () -> productService.getProductPage(null, 100).getProducts());
+    }
+
+    @Test
+    public void testProductByIdLoadsStockInOneStatement() {
+        Long id = productRepository.findAllWithStock().get(0).getId();
+
+        statistics.clear();
+        Product product = productRepository.findWithStockById(id).orElseThrow();
+        assertNotNull(product.getRealTimeStock());
+        assertEquals(1, statistics.getPrepareStatementCount(), "Product and stock should be loaded together");
+    }
+
+    // Runs a listing (including JSON serialization) before and after growing the catalog
+    private void assertConstantStatementCount(String listing, Supplier<Iterable<Product>> query) throws Exception {
+        long small = countStatements(query);
+        createProducts(20);
+        long large = countStatements(query);
+
+        assertEquals(small, large, listing + " should not issue one query per product");
+        System.out.println("✅ " + listing + ": " + large + " statement(s)");
+    }
+
+    private long countStatements(Supplier<Iterable<Product>> query) throws Exception {
+        statistics.clear();
+        Iterable<Product> products = query.get();
+        objectMapper.writeValueAsString(products);
+        for (Product product : products) {
+            product.getRealTimeStock();
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createProducts(int count) {
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setDescription("Query count test product");
+            product.setPrice(10.0);
+            product.setAvailableQuantity(5);
+            productService.createProduct(product);
+        }
+    }
+}
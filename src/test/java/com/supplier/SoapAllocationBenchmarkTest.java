@@ -0,0 +1,150 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.ws.WebServiceMessage;
+import org.springframework.ws.context.DefaultMessageContext;
+import org.springframework.ws.context.MessageContext;
+import org.springframework.ws.soap.saaj.SaajSoapMessageFactory;
+import org.springframework.ws.soap.server.SoapMessageDispatcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes allocated and time per SOAP request through the real dispatcher, marshaller and
+ * SAAJ message factory (everything but the servlet), for the ways a client can fetch a
+ * large catalog. Slow, so only runs with -Dbenchmark=true (catalog size with
+ * -Dbenchmark.products, default 500).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "upload.dir=uploads/",
+        "spring.datasource.url=jdbc:h2:mem:supplier-soap-benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+public class SoapAllocationBenchmarkTest {
+
+    private static final int REQUESTS = 20;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void benchmarkSoapAllocation() throws Exception {
+        int count = Integer.getInteger("benchmark.products", 500);
+        List<Long> ids = createCatalog(count);
+
+        SaajSoapMessageFactory messageFactory = new SaajSoapMessageFactory();
+        messageFactory.afterPropertiesSet();
+        SoapMessageDispatcher dispatcher = new SoapMessageDispatcher();
+        dispatcher.setApplicationContext(applicationContext);
+
+        String idList = ids.stream().map(id -> "<ws:ids>" + id + "</ws:ids>").collect(Collectors.joining());
+        measure(dispatcher, messageFactory, "getAllProducts, inline images", "<ws:getAllProductsRequest/>");
+        measure(dispatcher, messageFactory, "getAllProducts, no images",
+                "<ws:getAllProductsRequest><ws:includePictureData>false</ws:includePictureData></ws:getAllProductsRequest>");
+        measure(dispatcher, messageFactory, "getAllProducts, 2 fields",
+                "<ws:getAllProductsRequest><ws:fields>supplierPrice</ws:fields><ws:fields>realTimeStock</ws:fields>"
+                        + "</ws:getAllProductsRequest>");
+        measure(dispatcher, messageFactory, "getAllProducts, page of 100",
+                "<ws:getAllProductsRequest><ws:includePictureData>false</ws:includePictureData>"
+                        + "<ws:pageSize>100</ws:pageSize></ws:getAllProductsRequest>");
+        measure(dispatcher, messageFactory, "getProductsByIds, no images",
+                "<ws:getProductsByIdsRequest>" + idList + "<ws:includePictureData>false</ws:includePictureData>"
+                        + "</ws:getProductsByIdsRequest>");
+
+        // JAXBContext creation: former classpath scan against the generated ObjectFactory
+        long start = System.nanoTime();
+        Jaxb2Marshaller scanned = new Jaxb2Marshaller();
+        scanned.setPackagesToScan("com.supplier.ws");
+        scanned.afterPropertiesSet();
+        long scanMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        Jaxb2Marshaller contextPath = new Jaxb2Marshaller();
+        contextPath.setContextPath("com.supplier.ws");
+        contextPath.afterPropertiesSet();
+        System.out.printf("JAXBContext: packagesToScan %d ms, contextPath %d ms%n",
+                scanMs, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void measure(SoapMessageDispatcher dispatcher, SaajSoapMessageFactory messageFactory,
+                         String label, String payload) throws Exception {
+        byte[] envelope = ("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+                + "xmlns:ws=\"http://supplier.com/ws\"><soapenv:Body>" + payload
+                + "</soapenv:Body></soapenv:Envelope>").getBytes(StandardCharsets.UTF_8);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        int responseBytes = dispatch(dispatcher, messageFactory, envelope);
+        long allocated = 0;
+        long nanos = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            dispatch(dispatcher, messageFactory, envelope);
+            nanos += System.nanoTime() - start;
+            allocated += threads.getCurrentThreadAllocatedBytes() - before;
+        }
+        System.out.printf("%-32s %8.1f KB response %10.1f KB allocated %8.1f ms per request%n", label,
+                responseBytes / 1024.0, allocated / 1024.0 / REQUESTS, nanos / 1e6 / REQUESTS);
+    }
+
+    private int dispatch(SoapMessageDispatcher dispatcher, SaajSoapMessageFactory messageFactory, byte[] envelope)
+            throws Exception {
+        WebServiceMessage request = messageFactory.createWebServiceMessage(new ByteArrayInputStream(envelope));
+        MessageContext context = new DefaultMessageContext(request, messageFactory);
+        dispatcher.receive(context);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        context.getResponse().writeTo(out);
+        String response = out.toString(StandardCharsets.UTF_8);
+        assertFalse(response.contains("Fault"), response);
+        return out.size();
+    }
+
+    private List<Long> createCatalog(int count) throws Exception {
+        String pictureUrl;
+        try (Stream<Path> images = Files.list(Paths.get("uploads"))) {
+            pictureUrl = "/uploads/" + images.findFirst().orElseThrow().getFileName();
+        }
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("Benchmark SKU " + i);
+            product.setDescription("SOAP allocation benchmark product " + i);
+            product.setPrice(10.0 + i);
+            product.setAvailableQuantity(i);
+            product.setPictureUrl(pictureUrl);
+            products.add(product);
+        }
+        return productService.createProducts(products).stream().map(Product::getId).toList();
+    }
+}
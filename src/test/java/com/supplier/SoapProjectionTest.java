@@ -0,0 +1,107 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import com.supplier.ws.GetAllProductsRequest;
+import com.supplier.ws.GetAllProductsResponse;
+import com.supplier.ws.SupplierEndpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = "upload.dir=uploads/")
+public class SoapProjectionTest {
+
+    @Autowired
+    private SupplierEndpoint supplierEndpoint;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private String pictureUrl;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Stream<Path> images = Files.list(Paths.get("uploads"))) {
+            pictureUrl = "/uploads/" + images.findFirst().orElseThrow().getFileName();
+        }
+        Product product = new Product();
+        product.setName("Projected SKU");
+        product.setDescription("Projection test product");
+        product.setPrice(12.5);
+        product.setAvailableQuantity(8);
+        product.setPictureUrl(pictureUrl);
+        productService.createProduct(product);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testDefaultRequestReturnsEveryFieldAndImage() {
+        com.supplier.ws.Product product = onlyProduct(new GetAllProductsRequest());
+
+        assertEquals("Projected SKU", product.getName());
+        assertEquals(12.5, product.getSupplierPrice());
+        assertEquals(8, product.getRealTimeStock());
+        assertEquals(pictureUrl, product.getPictureUrl());
+        assertNotNull(product.getPictureData(), "Images are included unless includePictureData=false");
+        assertEquals("jpg", product.getPictureFormat());
+    }
+
+    @Test
+    public void testIncludePictureDataFalseOmitsImageOnly() {
+        GetAllProductsRequest request = new GetAllProductsRequest();
+        request.setIncludePictureData(false);
+
+        com.supplier.ws.Product product = onlyProduct(request);
+
+        assertNull(product.getPictureData());
+        assertEquals(pictureUrl, product.getPictureUrl());
+        assertEquals("jpg", product.getPictureFormat());
+        assertEquals("Projected SKU", product.getName());
+        assertEquals(8, product.getRealTimeStock());
+    }
+
+    @Test
+    public void testFieldsProjection() {
+        GetAllProductsRequest request = new GetAllProductsRequest();
+        request.getFields().addAll(List.of("supplierPrice", "realTimeStock"));
+
+        com.supplier.ws.Product product = onlyProduct(request);
+
+        assertNotNull(product.getId(), "The id is always sent");
+        assertEquals(12.5, product.getSupplierPrice());
+        assertEquals(8, product.getRealTimeStock());
+        assertNull(product.getName());
+        assertNull(product.getDescription());
+        assertNull(product.getPictureUrl());
+        assertNull(product.getPictureData(), "Images are only read when pictureData is requested");
+        assertNull(product.getPictureFormat());
+        assertNull(product.isApproved());
+    }
+
+    private com.supplier.ws.Product onlyProduct(GetAllProductsRequest request) {
+        GetAllProductsResponse response = supplierEndpoint.getAllProducts(request);
+        assertEquals(1, response.getProducts().size());
+        return response.getProducts().get(0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ProductService;
+import com.supplier.service.StockLevel;
+import com.supplier.service.StockUpdateResult;
+import com.supplier.ws.SupplierEndpoint;
+import com.supplier.ws.UpdateStockLevelsRequest;
+import com.supplier.ws.UpdateStockLevelsResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "stock.bulk-update.chunk-size=2")
+public class StockBulkUpdateTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierEndpoint supplierEndpoint;
+
+    private Long first;
+    private Long second;
+    private Long third;
+
+    @BeforeEach
+    public void setUp() {
+        first = createProduct(10);
+        second = createProduct(20);
+        third = createProduct(30);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testBulkUpdateReportsEveryItem() {
+        // Cached before the update, must not be served stale afterwards
+        assertEquals(10, productService.getProductById(first).orElseThrow().getRealTimeStock());
+
+        List<StockUpdateResult> results = productService.updateStockLevels(Arrays.asList(
+                new StockLevel(first, 1),
+                new StockLevel(-1L, 5),
+                new StockLevel(second, -2),
+                new StockLevel(third, 3),
+                null,
+                new StockLevel(first, 4)));
+
+        assertEquals(List.of(StockUpdateResult.Status.UPDATED, StockUpdateResult.Status.NOT_FOUND,
+                        StockUpdateResult.Status.INVALID, StockUpdateResult.Status.UPDATED,
+                        StockUpdateResult.Status.INVALID, StockUpdateResult.Status.UPDATED),
+                results.stream().map(StockUpdateResult::getStatus).toList());
+        assertEquals(-1L, results.get(1).getProductId());
+
+        assertEquals(4, productService.getAvailableStock(first).orElseThrow(), "Later item for the same product wins");
+        assertEquals(20, productService.getAvailableStock(second).orElseThrow());
+        assertEquals(3, productService.getAvailableStock(third).orElseThrow());
+        assertEquals(4, productService.getProductById(first).orElseThrow().getRealTimeStock());
+    }
+
+    @Test
+    public void testSoapUpdateStockLevels() {
+        UpdateStockLevelsRequest request = new UpdateStockLevelsRequest();
+        request.getItems().add(wsLevel(second, 0));
+        request.getItems().add(wsLevel(-1L, 1));
+
+        UpdateStockLevelsResponse response = supplierEndpoint.updateStockLevels(request);
+
+        assertEquals(2, response.getResults().size());
+        assertEquals("UPDATED", response.getResults().get(0).getStatus());
+        assertEquals("NOT_FOUND", response.getResults().get(1).getStatus());
+        assertEquals(0, productService.getAvailableStock(second).orElseThrow());
+    }
+
+    private static com.supplier.ws.StockLevel wsLevel(Long productId, int quantity) {
+        com.supplier.ws.StockLevel level = new com.supplier.ws.StockLevel();
+        level.setProductId(productId);
+        level.setQuantity(quantity);
+        return level;
+    }
+
+    private Long createProduct(int quantity) {
+        Product product = new Product();
+        product.setName("Synced SKU " + quantity);
+        product.setPrice(2.0);
+        product.setAvailableQuantity(quantity);
+        return productService.createProduct(product).getId();
+    }
+}
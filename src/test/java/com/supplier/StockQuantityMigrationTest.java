@@ -0,0 +1,59 @@
+package com.supplier;
+
+import com.supplier.config.StockQuantityMigration;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockQuantityMigrationTest {
+
+    @Test
+    public void testLegacyQuantitiesMoveToStockTable() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:stock-migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // Schema as created by Hibernate before the migration
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, " +
+                "available_quantity INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE stock (id BIGINT AUTO_INCREMENT PRIMARY KEY, product_id BIGINT NOT NULL, " +
+                "quantity INT NOT NULL, last_updated TIMESTAMP NOT NULL)");
+        jdbcTemplate.update("INSERT INTO products (id, name, available_quantity) VALUES (1, 'With stock', 5), (2, 'Without stock', 8)");
+        jdbcTemplate.update("INSERT INTO stock (product_id, quantity, last_updated) VALUES (1, 3, CURRENT_TIMESTAMP)");
+
+        StockQuantityMigration migration = new StockQuantityMigration();
+        try (Connection connection = dataSource.getConnection()) {
+            Context context = new Context() {
+                @Override
+                public Configuration getConfiguration() {
+                    return null;
+                }
+
+                @Override
+                public Connection getConnection() {
+                    return connection;
+                }
+            };
+            migration.migrate(context);
+
+            List<Map<String, Object>> stock = jdbcTemplate.queryForList("SELECT product_id, quantity FROM stock ORDER BY product_id");
+            assertEquals(2, stock.size(), "Missing stock row should be created");
+            assertEquals(3, ((Number) stock.get(0).get("quantity")).intValue(), "Existing stock rows win");
+            assertEquals(8, ((Number) stock.get(1).get("quantity")).intValue(), "Backfilled from products.available_quantity");
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_name = 'products' AND column_name = 'available_quantity'", Integer.class));
+
+            // Second run is a no-op
+            migration.migrate(context);
+            assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock", Integer.class));
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.supplier;
+
+import com.supplier.entity.Product;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.ChangeVersionClock;
+import com.supplier.service.ProductService;
+import com.supplier.service.StockChangeBus;
+import com.supplier.service.StockChanges;
+import com.supplier.service.StockLevel;
+import com.supplier.service.StockStreamService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = "stock.stream.retry-delay-ms=50")
+public class StockStreamTest {
+
+    @Autowired
+    private StockChangeBus stockChangeBus;
+
+    @Autowired
+    private StockStreamService stockStreamService;
+
+    @SpyBean
+    private ProductService productService;
+
+    @Autowired
+    private ChangeVersionClock changeVersionClock;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testSlowSubscriberGetsCoalescedChanges() throws Exception {
+        List<Set<Long>> deliveries = new CopyOnWriteArrayList<>();
+        CountDownLatch firstDelivery = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondDelivery = new CountDownLatch(2);
+        StockChangeBus.Subscription subscription = stockChangeBus.subscribe(Set.of(1L, 2L), changed -> {
+            deliveries.add(changed.getProductIds());
+            firstDelivery.countDown();
+            secondDelivery.countDown();
+            await(release);
+        });
+        try {
+            stockChangeBus.publish(1L);
+            assertTrue(firstDelivery.await(5, TimeUnit.SECONDS));
+            // The subscriber is still busy: these collapse into one pending entry per product
+            for (int i = 0; i < 100; i++) {
+                stockChangeBus.publish(List.of(1L, 2L, 3L));
+            }
+            release.countDown();
+            assertTrue(secondDelivery.await(5, TimeUnit.SECONDS));
+        } finally {
+            subscription.cancel();
+        }
+        assertEquals(List.of(Set.of(1L), Set.of(1L, 2L)), deliveries);
+    }
+
+    @Test
+    public void testRolledBackChangeIsNotPublished() {
+        List<Set<Long>> deliveries = new CopyOnWriteArrayList<>();
+        StockChangeBus.Subscription subscription = stockChangeBus.subscribe(Set.of(),
+                delivery -> deliveries.add(delivery.getProductIds()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                stockChangeBus.publish(42L);
+                status.setRollbackOnly();
+            });
+            stockChangeBus.publish(43L);
+            waitFor(() -> !deliveries.isEmpty());
+        } finally {
+            subscription.cancel();
+        }
+        assertEquals(List.of(Set.of(43L)), deliveries);
+    }
+
+    @Test
+    public void testLongPollWakesOnStockChange() {
+        Long watched = createProduct("Watched", 10);
+        Long other = createProduct("Other", 10);
+        long since = changeVersionClock.getCommittedVersion();
+
+        DeferredResult<StockChanges> poll = stockStreamService.pollChanges(since, Set.of(watched), 10_000L);
+        assertFalse(poll.hasResult());
+
+        productService.updateStock(other, 5);
+        productService.reduceStock(watched, 3);
+        waitFor(poll::hasResult);
+
+        StockChanges changes = (StockChanges) poll.getResult();
+        assertEquals(List.of(new StockLevel(watched, 7)), changes.getLevels());
+        assertTrue(changes.getVersion() > since);
+
+        // Resuming from the returned version waits again
+        DeferredResult<StockChanges> next = stockStreamService.pollChanges(changes.getVersion(), Set.of(watched), 10_000L);
+        assertFalse(next.hasResult());
+        productService.updateStockLevels(List.of(new StockLevel(watched, 20)));
+        waitFor(next::hasResult);
+        assertEquals(List.of(new StockLevel(watched, 20)), ((StockChanges) next.getResult()).getLevels());
+    }
+
+    @Test
+    public void testLongPollAnswersAtOnceWhenBehind() {
+        long since = changeVersionClock.getCommittedVersion();
+        Long first = createProduct("First", 1);
+        Long second = createProduct("Second", 2);
+
+        DeferredResult<StockChanges> poll = stockStreamService.pollChanges(since, Set.of(), null);
+
+        assertTrue(poll.hasResult());
+        StockChanges changes = (StockChanges) poll.getResult();
+        assertEquals(List.of(new StockLevel(first, 1), new StockLevel(second, 2)), changes.getLevels());
+        assertFalse(changes.isHasMore());
+    }
+
+    @Test
+    public void testLevelsAreReadOncePerPublish() {
+        Long productId = createProduct("Fanned out", 10);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Map<Long, Integer>> deliveries = new CopyOnWriteArrayList<>();
+        List<StockChangeBus.Subscription> subscriptions = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                subscriptions.add(stockChangeBus.subscribe(Set.of(productId), delivery -> deliveries.add(delivery.getLevels())));
+            }
+            statistics.clear();
+            stockChangeBus.publish(productId);
+            waitFor(() -> deliveries.size() == 5);
+        } finally {
+            subscriptions.forEach(StockChangeBus.Subscription::cancel);
+        }
+        assertEquals(1, statistics.getPrepareStatementCount(), "One level read for all subscribers");
+        deliveries.forEach(levels -> assertEquals(Map.of(productId, 10), levels));
+    }
+
+    @Test
+    public void testFailedLevelReadIsRetried() {
+        Long productId = createProduct("Retried", 10);
+        List<Map<Long, Integer>> deliveries = new CopyOnWriteArrayList<>();
+        StockChangeBus.Subscription subscription = stockChangeBus.subscribe(Set.of(productId),
+                delivery -> deliveries.add(delivery.getLevels()));
+        try {
+            doThrow(new DataAccessResourceFailureException("Connection is not available")).doCallRealMethod()
+                    .when(productService).getAvailableStock(anyCollection());
+            stockChangeBus.publish(productId);
+            waitFor(() -> !deliveries.isEmpty());
+        } finally {
+            subscription.cancel();
+        }
+        assertEquals(List.of(Map.of(productId, 10)), deliveries);
+    }
+
+    @Test
+    public void testWokenLongPollsShareOneQuery() {
+        Long watched = createProduct("Polled", 10);
+        long since = changeVersionClock.getCommittedVersion();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<DeferredResult<StockChanges>> polls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            polls.add(stockStreamService.pollChanges(since, Set.of(watched), 10_000L));
+        }
+
+        statistics.clear();
+        productService.updateStockLevels(List.of(new StockLevel(watched, 4)));
+        polls.forEach(poll -> waitFor(poll::hasResult));
+
+        // The bus reads the level once, the polls share one change query and its level lookup
+        assertEquals(3, statistics.getPrepareStatementCount());
+        for (DeferredResult<StockChanges> poll : polls) {
+            assertEquals(List.of(new StockLevel(watched, 4)), ((StockChanges) poll.getResult()).getLevels());
+        }
+    }
+
+    private Long createProduct(String name, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(1.0);
+        product.setAvailableQuantity(quantity);
+        return productService.createProduct(product).getId();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for a stock change");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.supplier;
+
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import com.supplier.repository.PaymentRepository;
+import com.supplier.repository.ProcessedEventRepository;
+import com.supplier.repository.ProductRepository;
+import com.supplier.service.GatewayEvent;
+import com.supplier.service.PaymentService;
+import com.supplier.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class WebhookIdempotencyTest {
+
+    private static final String SESSION_ID = "cs_test_idempotent";
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    private Long productId;
+    private Long paymentId;
+
+    @BeforeEach
+    public void setUp() {
+        Product product = new Product();
+        product.setName("Webhook product");
+        product.setDescription("Webhook idempotency test product");
+        product.setPrice(4.0);
+        product.setAvailableQuantity(10);
+        productId = productService.createProduct(product).getId();
+
+        Payment payment = new Payment();
+        payment.setProductId(productId);
+        payment.setOrderId("ORDER_WEBHOOK");
+        payment.setAmount(8.0);
+        payment.setQuantity(2);
+        payment.setStripeSessionId(SESSION_ID);
+        paymentId = paymentRepository.save(payment).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        processedEventRepository.deleteAll();
+        paymentRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testRedeliveriesReduceStockOnce() {
+        GatewayEvent event = new GatewayEvent("evt_once", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID);
+        paymentService.handleWebhookEvent(event);
+        paymentService.handleWebhookEvent(event);
+        // A different event for the same session and the browser success page are no-ops too
+        paymentService.handleWebhookEvent(new GatewayEvent("evt_other", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID));
+        paymentService.handleSuccessfulPayment(SESSION_ID);
+        paymentService.updatePaymentStatus(paymentId, "SUCCESS");
+
+        assertEquals(Payment.PaymentStatus.SUCCESS, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+        assertEquals(8, productService.getAvailableStock(productId).orElseThrow());
+        assertEquals(2, processedEventRepository.count());
+    }
+
+    @Test
+    public void testConcurrentDeliveriesReduceStockOnce() throws Exception {
+        GatewayEvent event = new GatewayEvent("evt_concurrent", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> deliveries = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            deliveries.add(executor.submit(() -> paymentService.handleWebhookEvent(event)));
+        }
+        for (Future<?> delivery : deliveries) {
+            try {
+                delivery.get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // A delivery that loses a lock race fails and would be retried by Stripe
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(Payment.PaymentStatus.SUCCESS, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+        assertEquals(8, productService.getAvailableStock(productId).orElseThrow());
+        assertEquals(1, processedEventRepository.count());
+    }
+}
@@ -0,0 +1,159 @@
+package com.supplier;
+
+import com.supplier.entity.Payment;
+import com.supplier.entity.Product;
+import com.supplier.entity.WebhookInboxEntry;
+import com.supplier.repository.PaymentRepository;
+import com.supplier.repository.ProcessedEventRepository;
+import com.supplier.repository.ProductRepository;
+import com.supplier.repository.WebhookInboxRepository;
+import com.supplier.service.GatewayEvent;
+import com.supplier.service.PaymentService;
+import com.supplier.service.ProductService;
+import com.supplier.service.WebhookInbox;
+import com.supplier.service.WebhookInboxWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {
+        "webhook.inbox.max-attempts=3",
+        "webhook.inbox.backoff-ms=0"
+})
+public class WebhookInboxTest {
+
+    private static final String SESSION_ID = "cs_test_inbox";
+
+    @SpyBean
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private WebhookInbox webhookInbox;
+
+    @Autowired
+    private WebhookInboxWorker webhookInboxWorker;
+
+    @Autowired
+    private WebhookInboxRepository webhookInboxRepository;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Long productId;
+    private Long paymentId;
+
+    @BeforeEach
+    public void setUp() {
+        Product product = new Product();
+        product.setName("Inbox product");
+        product.setDescription("Webhook inbox test product");
+        product.setPrice(5.0);
+        product.setAvailableQuantity(10);
+        productId = productService.createProduct(product).getId();
+
+        Payment payment = new Payment();
+        payment.setProductId(productId);
+        payment.setOrderId("ORDER_INBOX");
+        payment.setAmount(5.0);
+        payment.setQuantity(1);
+        payment.setStripeSessionId(SESSION_ID);
+        paymentId = paymentRepository.save(payment).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        webhookInboxRepository.deleteAll();
+        processedEventRepository.deleteAll();
+        paymentRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    public void testEventIsQueuedThenProcessed() {
+        GatewayEvent event = new GatewayEvent("evt_inbox", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID);
+        assertTrue(webhookInbox.enqueue(event));
+        assertFalse(webhookInbox.enqueue(event), "Redelivery must not be queued twice");
+        assertEquals(Payment.PaymentStatus.PENDING, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+
+        assertEquals(1, webhookInboxWorker.drain());
+
+        WebhookInboxEntry entry = webhookInboxRepository.findAll().get(0);
+        assertEquals(WebhookInboxEntry.Status.DONE, entry.getStatus());
+        assertEquals(Payment.PaymentStatus.SUCCESS, paymentRepository.findById(paymentId).orElseThrow().getStatus());
+        assertEquals(9, productService.getAvailableStock(productId).orElseThrow());
+        assertEquals(0, webhookInboxWorker.drain());
+    }
+
+    @Test
+    public void testFailedEventIsRetried() {
+        doThrow(new RuntimeException("Database unavailable")).doCallRealMethod()
+                .when(paymentService).handleWebhookEvent(any());
+        webhookInbox.enqueue(new GatewayEvent("evt_retry", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID));
+
+        webhookInboxWorker.drain();
+        WebhookInboxEntry entry = webhookInboxRepository.findAll().get(0);
+        assertEquals(WebhookInboxEntry.Status.PENDING, entry.getStatus());
+        assertEquals(1, entry.getAttempts());
+        assertEquals("Database unavailable", entry.getLastError());
+
+        webhookInboxWorker.drain();
+        entry = webhookInboxRepository.findAll().get(0);
+        assertEquals(WebhookInboxEntry.Status.DONE, entry.getStatus());
+        assertEquals(2, entry.getAttempts());
+        assertEquals(9, productService.getAvailableStock(productId).orElseThrow());
+    }
+
+    @Test
+    public void testEventIsDeadAfterMaxAttempts() {
+        doThrow(new RuntimeException("Always failing")).when(paymentService).handleWebhookEvent(any());
+        webhookInbox.enqueue(new GatewayEvent("evt_dead", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID));
+
+        for (int i = 0; i < 4; i++) {
+            webhookInboxWorker.drain();
+        }
+
+        WebhookInboxEntry entry = webhookInboxRepository.findAll().get(0);
+        assertEquals(WebhookInboxEntry.Status.DEAD, entry.getStatus());
+        assertEquals(3, entry.getAttempts());
+        assertEquals(10, productService.getAvailableStock(productId).orElseThrow());
+    }
+
+    @Test
+    public void testPurgeRemovesOldDoneEntriesOnly() {
+        LocalDateTime old = LocalDateTime.now().minusDays(30);
+        webhookInboxRepository.saveAll(List.of(
+                new WebhookInboxEntry("evt_old_done", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID,
+                        WebhookInboxEntry.Status.DONE, 1, old, old, old, null),
+                new WebhookInboxEntry("evt_recent_done", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID,
+                        WebhookInboxEntry.Status.DONE, 1, old, old, LocalDateTime.now(), null),
+                new WebhookInboxEntry("evt_old_dead", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID,
+                        WebhookInboxEntry.Status.DEAD, 3, old, old, null, "Always failing"),
+                new WebhookInboxEntry("evt_pending", GatewayEvent.CHECKOUT_SESSION_COMPLETED, SESSION_ID,
+                        WebhookInboxEntry.Status.PENDING, 0, old, old, null, null)));
+
+        webhookInbox.purgeProcessed();
+
+        assertEquals(List.of("evt_old_dead", "evt_pending", "evt_recent_done"),
+                webhookInboxRepository.findAll().stream().map(WebhookInboxEntry::getEventId).sorted().toList());
+    }
+}